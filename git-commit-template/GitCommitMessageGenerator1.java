@@ -10,22 +10,13 @@ import java.util.*;
  */
 public class GitCommitMessageGenerator1 {
 
-    private static final Map<String, String> DOCS_MAP = new HashMap<>();
     private static final List<String> VERBS = Arrays.asList(
             "添加", "更新", "修正", "补充", "完善",
             "整理", "梳理", "优化", "解释", "分析"
     );
 
-    static {
-        DOCS_MAP.put("Java基础", "Java基础");
-        DOCS_MAP.put("Java并发", "Java并发编程");
-        DOCS_MAP.put("JVM", "Java虚拟机");
-        DOCS_MAP.put("MySQL", "Mysql数据库");
-        DOCS_MAP.put("Redis", "Redis");
-        DOCS_MAP.put("Linux", "Linux");
-        DOCS_MAP.put("Maven", "Maven");
-        DOCS_MAP.put("Git", "Git");
-    }
+    // scope 映射配置：路径片段 = scope，同时命中多个时取最长的片段
+    private static final String SCOPES_CONFIG = "git-commit-template/scopes.properties";
 
     public static void main(String[] args) {
         try {
@@ -80,19 +71,14 @@ public class GitCommitMessageGenerator1 {
             int verbChoice = verbChoiceStr.isEmpty() ? 1 : Integer.parseInt(verbChoiceStr);
             String selectedVerb = VERBS.get(verbChoice - 1);
 
+            ScopeClassifier scopes = ScopeClassifier.load(Paths.get(SCOPES_CONFIG));
             List<String> commitMessages = new ArrayList<>();
             System.out.println("\n========== 生成的 Commit Message ==========\n");
 
             for (File selectedFile : selectedFiles) {
                 String relativePath = getRelativePath(selectedFile);
 
-                String scope = "其他";
-                for (Map.Entry<String, String> entry : DOCS_MAP.entrySet()) {
-                    if (relativePath.contains(entry.getValue())) {
-                        scope = entry.getKey();
-                        break;
-                    }
-                }
+                String scope = scopes.classify(relativePath);
 
                 String title = selectedFile.getName().replace(".md", "");
                 String subject = selectedVerb + title;
@@ -1,4 +1,5 @@
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.*;
 /**
@@ -10,48 +11,54 @@ import java.util.*;
  */
 public class GitCommitMessageGenerator2 {
 
-    private static final Map<String, String> DOCS_MAP = new HashMap<>();
     private static final List<String> VERBS = Arrays.asList(
             "添加", "更新", "修正", "补充", "完善",
             "整理", "梳理", "优化", "解释", "分析"
     );
 
-    static {
-        DOCS_MAP.put("Java基础", "Java基础");
-        DOCS_MAP.put("Java并发", "Java并发编程");
-        DOCS_MAP.put("JVM", "Java虚拟机");
-        DOCS_MAP.put("MySQL", "Mysql数据库");
-        DOCS_MAP.put("Redis", "Redis");
-        DOCS_MAP.put("Linux", "Linux");
-        DOCS_MAP.put("Maven", "Maven");
-        DOCS_MAP.put("Git", "Git");
-    }
+    // scope 映射配置：路径片段 = scope，同时命中多个时目录优先于文件名，同一段取最长的片段
+    private static final String SCOPES_CONFIG = "git-commit-template/scopes.properties";
+    private static final String OUTPUT_FILE = "git-commit-template/git-commit-template-result.txt";
 
     public static void main(String[] args) {
+        if (args.length > 0 && "--batch".equals(args[0])) {
+            try {
+                runBatch(args);
+            } catch (Exception e) {
+                System.err.println("生成失败: " + e.getMessage());
+                System.exit(1);
+            }
+            return;
+        }
         try {
             System.out.println("\n========== Markdown 文档 Commit Message 生成器 ==========\n");
 
-            List<File> markdownFiles = findMarkdownFiles(".");
+            // --changed：只列出相对 HEAD 有改动（修改 / 新增，含已暂存的）的文档，不再让用户在全部文档里挑
+            boolean changedOnly = args.length > 0 && "--changed".equals(args[0]);
+            GitObjectReader head = changedOnly ? GitObjectReader.forRepository(Paths.get(".")) : null;
+            List<MarkdownScanner.MarkdownFile> markdownFiles = changedOnly
+                    ? findChangedMarkdownFiles(GitIndex.forRepository(Paths.get(".")), head, ".")
+                    : findMarkdownFiles(".");
 
             if (markdownFiles.isEmpty()) {
-                System.out.println("⚠️  未找到 Markdown 文档文件");
+                System.out.println(changedOnly ? "⚠️  未找到有改动的 Markdown 文档" : "⚠️  未找到 Markdown 文档文件");
                 System.out.println("按回车键退出...");
                 new Scanner(System.in).nextLine();
                 return;
             }
 
-            System.out.println("【检测到的 Markdown 文档】");
+            System.out.println(changedOnly ? "【有改动的 Markdown 文档】" : "【检测到的 Markdown 文档】");
             for (int i = 0; i < markdownFiles.size(); i++) {
-                File file = markdownFiles.get(i);
-                String relativePath = getRelativePath(file);
-                System.out.println("  [" + (i + 1) + "] " + relativePath);
+                String relativePath = markdownFiles.get(i).relativePath;
+                String status = head == null ? "" : head.headObjectId(relativePath) != null ? "  (修改)" : "  (新增)";
+                System.out.println("  [" + (i + 1) + "] " + relativePath + status);
             }
 
             Scanner scanner = new Scanner(System.in);
             System.out.print("\n请选择要生成 commit message 的文件 (多个文件用逗号分隔，如: 1,3,5,6): ");
             String fileChoicesStr = scanner.nextLine();
             String[] fileChoiceArray = fileChoicesStr.split(",");
-            List<File> selectedFiles = new ArrayList<>();
+            List<MarkdownScanner.MarkdownFile> selectedFiles = new ArrayList<>();
 
             for (String choice : fileChoiceArray) {
                 try {
@@ -72,33 +79,37 @@ public class GitCommitMessageGenerator2 {
             }
 
             System.out.println("\n【选择动词】");
+            System.out.println("  [0] 自动（按相对 HEAD 的改动选择：添加 / 补充 / 修正 / 更新）");
             for (int i = 0; i < VERBS.size(); i++) {
                 System.out.println("  [" + (i + 1) + "] " + VERBS.get(i));
             }
-            System.out.print("\n请选择动词 (1-" + VERBS.size() + ", 默认 1): ");
+            System.out.print("\n请选择动词 (0-" + VERBS.size() + ", 默认 0): ");
             String verbChoiceStr = scanner.nextLine();
-            int verbChoice = verbChoiceStr.isEmpty() ? 1 : Integer.parseInt(verbChoiceStr);
-            String selectedVerb = VERBS.get(verbChoice - 1);
+            int verbChoice = verbChoiceStr.isEmpty() ? 0 : Integer.parseInt(verbChoiceStr);
 
+            ScopeClassifier scopes = ScopeClassifier.load(Paths.get(SCOPES_CONFIG));
             List<String> commitMessages = new ArrayList<>();
             System.out.println("\n========== 生成的 Commit Message ==========\n");
 
-            for (File selectedFile : selectedFiles) {
-                String relativePath = getRelativePath(selectedFile);
-
-                String scope = "其他";
-                for (Map.Entry<String, String> entry : DOCS_MAP.entrySet()) {
-                    if (relativePath.contains(entry.getValue())) {
-                        scope = entry.getKey();
-                        break;
-                    }
+            if (verbChoice == 0) {
+                List<String> relativePaths = new ArrayList<>();
+                for (MarkdownScanner.MarkdownFile selectedFile : selectedFiles) {
+                    relativePaths.add(selectedFile.relativePath);
                 }
+                for (DiffStat stat : DiffStat.compute(Paths.get("."), relativePaths)) {
+                    String commitMessage = commitMessage(scopes, stat.verb(), stat.relativePath);
+                    commitMessages.add(commitMessage);
+                    System.out.println(commitMessage + "    (" + stat + ")");
+                }
+            } else {
+                String selectedVerb = VERBS.get(verbChoice - 1);
+                for (MarkdownScanner.MarkdownFile selectedFile : selectedFiles) {
+                    String relativePath = selectedFile.relativePath;
 
-                String title = selectedFile.getName().replace(".md", "");
-                String subject = selectedVerb + title;
-                String commitMessage = "docs(" + scope + "): " + subject;
-                commitMessages.add(commitMessage);
-                System.out.println(commitMessage);
+                    String commitMessage = commitMessage(scopes, selectedVerb, relativePath);
+                    commitMessages.add(commitMessage);
+                    System.out.println(commitMessage);
+                }
             }
 
             System.out.println("\n============================================\n");
@@ -111,8 +122,8 @@ public class GitCommitMessageGenerator2 {
             }
 
             // 保存到文件
-            String outputFile = outputDir + "/git-commit-template-result.txt";
-            try (FileWriter writer = new FileWriter(outputFile)) {
+            String outputFile = OUTPUT_FILE;
+            try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(outputFile), StandardCharsets.UTF_8)) {
                 for (String msg : commitMessages) {
                     writer.write(msg);
                     writer.write("\n");
@@ -129,26 +140,145 @@ public class GitCommitMessageGenerator2 {
         }
     }
 
-    private static List<File> findMarkdownFiles(String directory) throws IOException {
-        List<File> files = new ArrayList<>();
-        Path startPath = Paths.get(directory);
+    /**
+     * 无交互的批量模式，给 pre-commit 等钩子用：
+     * GitCommitMessageGenerator2 --batch [--verb 动词或序号|auto] [--output 文件|-] [--changed] [--] [路径...]
+     * 未知的 -- 开头参数、缺少值的 --verb / --output 直接报错退出（退出码 1）；以 -- 开头的路径写在单独的 -- 之后。
+     * 路径来自参数；没有参数时加 --changed 取有改动的文档（工作区未暂存的修改、已 git add 的修改和新文件、未跟踪的新文档），
+     * 否则逐行读标准输入。
+     * 每读到一个路径就生成一条，直接写进带缓冲的输出，不等全部读完；输出为 - 时写到标准输出。
+     * --verb auto 按每个文件相对 HEAD 的改动选动词，需要先读完所有路径再并行计算
+     */
+    private static void runBatch(String[] args) throws IOException {
+        String verb = VERBS.get(0);
+        String output = OUTPUT_FILE;
+        boolean changedOnly = false;
+        List<String> paths = new ArrayList<>();
+        boolean optionsEnded = false;
+        for (int i = 1; i < args.length; i++) {
+            if (optionsEnded) {
+                paths.add(args[i]);
+            } else if ("--".equals(args[i])) {
+                // -- 之后的参数一律当作路径
+                optionsEnded = true;
+            } else if ("--verb".equals(args[i])) {
+                // null 表示自动选择
+                String value = optionValue(args, i++);
+                verb = "auto".equals(value) ? null : parseVerb(value);
+            } else if ("--output".equals(args[i])) {
+                output = optionValue(args, i++);
+            } else if ("--changed".equals(args[i])) {
+                changedOnly = true;
+            } else if (args[i].startsWith("--")) {
+                throw new IllegalArgumentException("未知参数: " + args[i]);
+            } else {
+                paths.add(args[i]);
+            }
+        }
 
-        Files.walk(startPath)
-                .filter(Files::isRegularFile)
-                .filter(path -> path.toString().endsWith(".md"))
-                .filter(path -> !path.toString().contains(".git"))
-                .filter(path -> !path.toString().contains("docs/git-commit-template.md"))
-                .forEach(path -> files.add(path.toFile()));
+        ScopeClassifier scopes = ScopeClassifier.load(Paths.get(SCOPES_CONFIG));
+        boolean toStdout = "-".equals(output);
+        if (!toStdout && Paths.get(output).getParent() != null) {
+            Files.createDirectories(Paths.get(output).getParent());
+        }
+        int count = 0;
+        List<String> pending = new ArrayList<>();
+        try (Writer writer = toStdout
+                ? new BufferedWriter(new OutputStreamWriter(new FileOutputStream(FileDescriptor.out), StandardCharsets.UTF_8), 1 << 16)
+                : Files.newBufferedWriter(Paths.get(output), StandardCharsets.UTF_8)) {
+            if (!paths.isEmpty()) {
+                for (String path : paths) {
+                    count += writeMessage(writer, scopes, verb, pending, path);
+                }
+            } else if (changedOnly) {
+                // 和交互模式的 --changed 用同一套判断，已暂存的改动同样会列出
+                GitObjectReader head = GitObjectReader.forRepository(Paths.get("."));
+                for (MarkdownScanner.MarkdownFile file : findChangedMarkdownFiles(GitIndex.forRepository(Paths.get(".")), head, ".")) {
+                    count += writeMessage(writer, scopes, verb, pending, file.relativePath);
+                }
+            } else {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), 1 << 16);
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    count += writeMessage(writer, scopes, verb, pending, line);
+                }
+            }
+            if (verb == null) {
+                for (DiffStat stat : DiffStat.compute(Paths.get("."), pending)) {
+                    writer.write(commitMessage(scopes, stat.verb(), stat.relativePath));
+                    writer.write('\n');
+                }
+            }
+        }
+        System.err.println("共生成 " + count + " 条 commit message" + (toStdout ? "" : "，已保存到: " + output));
+    }
 
+    // 选项的值：缺失或者紧跟着另一个选项时报错，不会把下一个参数当成值、也不会把选项本身当成路径
+    private static String optionValue(String[] args, int i) {
+        if (i + 1 >= args.length || args[i + 1].startsWith("--")) {
+            throw new IllegalArgumentException(args[i] + " 缺少参数值");
+        }
+        return args[i + 1];
+    }
+
+    // 动词可以写序号（1-10）或直接写动词
+    private static String parseVerb(String value) {
+        if (VERBS.contains(value)) {
+            return value;
+        }
+        try {
+            return VERBS.get(Integer.parseInt(value) - 1);
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("无效的动词: " + value + "，可选 " + VERBS);
+        }
+    }
+
+    private static int writeMessage(Writer writer, ScopeClassifier scopes, String verb, List<String> pending, String path) throws IOException {
+        String relativePath = path.trim().replace('\\', '/');
+        if (relativePath.startsWith("./")) {
+            relativePath = relativePath.substring(2);
+        }
+        if (relativePath.isEmpty()) {
+            return 0;
+        }
+        if (verb == null) {
+            pending.add(relativePath);
+            return 1;
+        }
+        writer.write(commitMessage(scopes, verb, relativePath));
+        writer.write('\n');
+        return 1;
+    }
+
+    // 交互模式和批量模式共用：scope 由路径决定，标题取文件名
+    private static String commitMessage(ScopeClassifier scopes, String verb, String relativePath) {
+        String name = relativePath.substring(relativePath.lastIndexOf('/') + 1);
+        String title = name.replace(".md", "");
+        return "docs(" + scopes.classify(relativePath) + "): " + verb + title;
+    }
+
+    // 剪枝 + 并行遍历，目录索引缓存在 .git/md-scan.idx，第二次运行只重新列出有变化的目录
+    private static List<MarkdownScanner.MarkdownFile> findMarkdownFiles(String directory) throws IOException {
+        List<MarkdownScanner.MarkdownFile> files = new ArrayList<>();
+        for (MarkdownScanner.MarkdownFile file : MarkdownScanner.forRepository(Paths.get(directory)).scan()) {
+            if (!file.relativePath.contains("docs/git-commit-template.md")) {
+                files.add(file);
+            }
+        }
         return files;
     }
 
-    private static String getRelativePath(File file) {
-        String currentDir = System.getProperty("user.dir").replace("\\", "/");
-        String filePath = file.getAbsolutePath().replace("\\", "/");
-        if (filePath.startsWith(currentDir)) {
-            return filePath.substring(currentDir.length() + 1);
+    // 直接读 .git/index：工作区相对暂存区被修改的文档、暂存区相对 HEAD 有改动的文档（已 add 的修改和新文件），
+    // 再加上暂存区里没有的新文档
+    private static List<MarkdownScanner.MarkdownFile> findChangedMarkdownFiles(GitIndex index, GitObjectReader head, String directory) throws IOException {
+        Set<String> modified = new HashSet<>(index.modifiedFiles(path -> path.endsWith(".md")));
+        modified.addAll(index.stagedFiles(head, path -> path.endsWith(".md")));
+        List<MarkdownScanner.MarkdownFile> files = new ArrayList<>();
+        for (MarkdownScanner.MarkdownFile file : findMarkdownFiles(directory)) {
+            if (modified.contains(file.relativePath) || !index.contains(file.relativePath)) {
+                files.add(file);
+            }
         }
-        return filePath;
+        return files;
     }
 }
\ No newline at end of file
@@ -0,0 +1,58 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+/**
+ * 类描述
+ *
+ * @author wjh
+ * @description 定位仓库的 git 目录：普通仓库是根目录下的 .git 目录；
+ *              git worktree add 出来的链接工作区、子模块的 .git 是一个写着 gitdir: <路径> 的文件；
+ *              链接工作区的 git 目录里只有 HEAD、index 等私有文件，objects / refs / packed-refs / config
+ *              在 commondir 指向的主仓库 git 目录里
+ * @date 2026/3/13 上午10:05
+ */
+public final class GitDirs {
+
+    private GitDirs() {
+    }
+
+    // 仓库根目录 → git 目录（HEAD、index 所在的目录）；不是 git 仓库时返回 root/.git（调用方按不存在处理）
+    public static Path gitDir(Path root) throws IOException {
+        Path git = root.resolve(".git");
+        if (!Files.isRegularFile(git)) {
+            return git;
+        }
+        String content = new String(Files.readAllBytes(git), StandardCharsets.UTF_8).trim();
+        if (!content.startsWith("gitdir:")) {
+            throw new IOException("无法识别的 .git 文件：" + git);
+        }
+        // 相对路径相对于 .git 文件所在的目录
+        return root.resolve(content.substring("gitdir:".length()).trim()).normalize();
+    }
+
+    // git 目录 → 公共目录（objects、refs、packed-refs、config 所在的目录）；没有 commondir 文件时就是 git 目录本身
+    public static Path commonDir(Path gitDir) throws IOException {
+        Path commondir = gitDir.resolve("commondir");
+        if (!Files.isRegularFile(commondir)) {
+            return gitDir;
+        }
+        String content = new String(Files.readAllBytes(commondir), StandardCharsets.UTF_8).trim();
+        return gitDir.resolve(content).normalize();
+    }
+
+    // 读取 config 里的一个配置项（不区分小节，键名小写），没有时返回 null
+    public static String config(Path commonDir, String key) {
+        try {
+            for (String line : Files.readAllLines(commonDir.resolve("config"), StandardCharsets.UTF_8)) {
+                String trimmed = line.replace(" ", "").replace("\t", "").toLowerCase(Locale.ROOT);
+                if (trimmed.startsWith(key + "=")) {
+                    return trimmed.substring(key.length() + 1);
+                }
+            }
+        } catch (IOException e) {
+            // 读不到配置时按默认值处理
+        }
+        return null;
+    }
+}
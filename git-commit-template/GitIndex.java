@@ -0,0 +1,317 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+/**
+ * 类描述
+ *
+ * @author wjh
+ * @description 直接解析 .git/index（暂存区）二进制文件，不启动 git 进程：
+ *              用内存映射的 FileChannel 读出每个条目的 stat 信息，与工作区文件的 mtime / size 比较，找出被修改的文件；
+ *              支持链接工作区和子模块（.git 是 gitdir: 文件）。core.autocrlf 或 .gitattributes 开启了换行符转换时，
+ *              按 CRLF → LF 转换后的内容再算一次哈希；clean 过滤器（如 Git LFS）和按路径生效的属性不做模拟，
+ *              这类文件只要 stat 信息变了就会被当作已修改（宁可多列，不会漏掉）
+ * @date 2026/3/9 下午3:40
+ */
+public class GitIndex {
+
+    // 索引文件格式：12 字节头（"DIRC"、版本号、条目数）+ 按路径排序的条目 + 扩展 + 校验和
+    private static final int SIGNATURE = 0x44495243;
+    // 条目定长部分：ctime、mtime 各 8 字节，dev、ino、mode、uid、gid、size 各 4 字节
+    private static final int STAT_BYTES = 40;
+    private static final int FLAG_ASSUME_VALID = 0x8000;
+    private static final int FLAG_EXTENDED = 0x4000;
+    private static final int FLAG_NAME_MASK = 0x0fff;
+    private static final int EXTENDED_SKIP_WORKTREE = 0x4000;
+    private static final int EXTENDED_INTENT_TO_ADD = 0x2000;
+
+    private final Path root;
+    private final int version;
+    private final int hashLength;
+    // 索引文件自身的修改时间，用来判断“racy”条目
+    private final long indexMtimeNanos;
+    // 工作区内容是否经过 CRLF → LF 转换后才存入暂存区
+    private final boolean normalizeEol;
+    private final List<Entry> entries;
+    private final Map<String, Entry> byPath;
+
+    private GitIndex(Path root, int version, int hashLength, long indexMtimeNanos, boolean normalizeEol, List<Entry> entries) {
+        this.root = root;
+        this.version = version;
+        this.hashLength = hashLength;
+        this.indexMtimeNanos = indexMtimeNanos;
+        this.normalizeEol = normalizeEol;
+        this.entries = entries;
+        this.byPath = new HashMap<>(entries.size() * 2);
+        for (Entry entry : entries) {
+            byPath.put(entry.path, entry);
+        }
+    }
+
+    // 读取仓库的暂存区（链接工作区读它自己的 index）；没有暂存区（新仓库还没 add 过）时返回空索引
+    public static GitIndex forRepository(Path root) throws IOException {
+        Path git = GitDirs.gitDir(root);
+        Path common = GitDirs.commonDir(git);
+        Path indexFile = git.resolve("index");
+        int hashLength = "sha256".equals(GitDirs.config(common, "objectformat")) ? 32 : 20;
+        boolean normalizeEol = eolConversion(root, common);
+        if (!Files.isRegularFile(indexFile)) {
+            return new GitIndex(root, 2, hashLength, 0, normalizeEol, Collections.emptyList());
+        }
+        return read(root, indexFile, hashLength, normalizeEol);
+    }
+
+    public static GitIndex read(Path root, Path indexFile, int hashLength) throws IOException {
+        return read(root, indexFile, hashLength, false);
+    }
+
+    public static GitIndex read(Path root, Path indexFile, int hashLength, boolean normalizeEol) throws IOException {
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            long indexMtime = Files.getLastModifiedTime(indexFile).to(TimeUnit.NANOSECONDS);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 12 || buffer.getInt(0) != SIGNATURE) {
+                throw new IOException("不是 git 索引文件：" + indexFile);
+            }
+            int version = buffer.getInt(4);
+            if (version < 2 || version > 4) {
+                throw new IOException("不支持的索引版本：" + version);
+            }
+            int count = buffer.getInt(8);
+            List<Entry> entries = new ArrayList<>(count);
+            int offset = 12;
+            // v4 的路径是前缀压缩的：每条只存“去掉上一条路径末尾 N 字节后追加的后缀”
+            byte[] previous = new byte[0];
+            for (int i = 0; i < count; i++) {
+                int start = offset;
+                long mtimeNanos = (buffer.getInt(start + 8) & 0xffffffffL) * 1_000_000_000L + (buffer.getInt(start + 12) & 0xffffffffL);
+                long size = buffer.getInt(start + 36) & 0xffffffffL;
+                byte[] hash = new byte[hashLength];
+                buffer.get(start + STAT_BYTES, hash);
+                offset = start + STAT_BYTES + hashLength;
+                int flags = buffer.getShort(offset) & 0xffff;
+                offset += 2;
+                int extended = 0;
+                if (version >= 3 && (flags & FLAG_EXTENDED) != 0) {
+                    extended = buffer.getShort(offset) & 0xffff;
+                    offset += 2;
+                }
+                byte[] path;
+                if (version == 4) {
+                    long strip = 0;
+                    int b = buffer.get(offset++) & 0xff;
+                    strip = b & 0x7f;
+                    while ((b & 0x80) != 0) {
+                        b = buffer.get(offset++) & 0xff;
+                        strip = ((strip + 1) << 7) | (b & 0x7f);
+                    }
+                    int end = nul(buffer, offset);
+                    int keep = previous.length - (int) strip;
+                    path = Arrays.copyOf(previous, keep + end - offset);
+                    buffer.get(offset, path, keep, end - offset);
+                    offset = end + 1;
+                } else {
+                    int nameLength = flags & FLAG_NAME_MASK;
+                    int end = nameLength < FLAG_NAME_MASK ? offset + nameLength : nul(buffer, offset);
+                    path = new byte[end - offset];
+                    buffer.get(offset, path);
+                    // v2 / v3 条目用 1~8 个 NUL 补齐到 8 字节的整数倍
+                    offset = start + ((end - start + 8) & ~7);
+                }
+                previous = path;
+                entries.add(new Entry(new String(path, StandardCharsets.UTF_8), mtimeNanos, size, hash,
+                        (flags >>> 12) & 3, (flags & FLAG_ASSUME_VALID) != 0,
+                        (extended & EXTENDED_SKIP_WORKTREE) != 0, (extended & EXTENDED_INTENT_TO_ADD) != 0));
+            }
+            // 之后的扩展（TREE、REUC 等）和校验和用不到，不再解析
+            return new GitIndex(root, version, hashLength, indexMtime, normalizeEol, entries);
+        }
+    }
+
+    private static int nul(ByteBuffer buffer, int offset) throws IOException {
+        for (int i = offset; i < buffer.limit(); i++) {
+            if (buffer.get(i) == 0) {
+                return i;
+            }
+        }
+        throw new IOException("索引条目路径没有结束符");
+    }
+
+    // core.autocrlf = true / input，或根目录 .gitattributes 里声明了 text / eol 属性（近似判断，不区分路径）
+    private static boolean eolConversion(Path root, Path commonDir) {
+        String autocrlf = GitDirs.config(commonDir, "autocrlf");
+        if ("true".equals(autocrlf) || "input".equals(autocrlf)) {
+            return true;
+        }
+        try {
+            for (String line : Files.readAllLines(root.resolve(".gitattributes"), StandardCharsets.UTF_8)) {
+                String trimmed = line.trim();
+                if (trimmed.startsWith("#")) {
+                    continue;
+                }
+                for (String attr : trimmed.split("\\s+")) {
+                    if (attr.equals("text") || attr.equals("text=auto") || attr.startsWith("eol=")) {
+                        return true;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // 没有 .gitattributes
+        }
+        return false;
+    }
+
+    public int version() {
+        return version;
+    }
+
+    public List<Entry> entries() {
+        return entries;
+    }
+
+    public boolean contains(String relativePath) {
+        return byPath.containsKey(relativePath);
+    }
+
+    /**
+     * 找出工作区中相对暂存区被修改的文件（只检查 filter 接受的路径）
+     * 和 git 的判断顺序一致：stat 信息一致且不是 racy 条目就认为没改；
+     * stat 不一致但大小相同时，再算一次 blob 哈希确认（checkout、touch 过的文件不会误报）
+     */
+    public List<String> modifiedFiles(Predicate<String> filter) throws IOException {
+        List<String> modified = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (entry.skipWorktree || !filter.test(entry.path)) {
+                continue;
+            }
+            if (entry.stage != 0 || entry.intentToAdd) {
+                // 合并冲突中的文件；git add -N 只登记了路径、内容还没暂存的新文件
+                if (modified.isEmpty() || !modified.get(modified.size() - 1).equals(entry.path)) {
+                    modified.add(entry.path);
+                }
+                continue;
+            }
+            if (!entry.assumeValid && isModified(entry)) {
+                modified.add(entry.path);
+            }
+        }
+        return modified;
+    }
+
+    /**
+     * 找出已暂存、但和 HEAD 不同的文件（只检查 filter 接受的路径）：暂存区条目的哈希和 HEAD 中同一路径的对象 ID 不同，
+     * 包括 git add 过的修改和 HEAD 中没有的新文件；这类文件在工作区和暂存区之间可能已经没有差异，modifiedFiles 找不到
+     */
+    public List<String> stagedFiles(GitObjectReader head, Predicate<String> filter) throws IOException {
+        List<String> staged = new ArrayList<>();
+        for (Entry entry : entries) {
+            // 冲突条目和 git add -N 的条目由 modifiedFiles 报告
+            if (entry.stage != 0 || entry.intentToAdd || !filter.test(entry.path)) {
+                continue;
+            }
+            if (!Arrays.equals(entry.hash, head.headObjectId(entry.path))) {
+                staged.add(entry.path);
+            }
+        }
+        return staged;
+    }
+
+    private boolean isModified(Entry entry) throws IOException {
+        Path file = root.resolve(entry.path);
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (NoSuchFileException e) {
+            // 已删除的文件不在“修改 / 新增”之列
+            return false;
+        }
+        long size = attrs.size();
+        if ((size & 0xffffffffL) != entry.size) {
+            return true;
+        }
+        long mtime = attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+        // racy：文件在写索引的同一时刻（或之后）被改过，stat 一致也不能说明内容没变
+        boolean racy = entry.mtimeNanos >= indexMtimeNanos;
+        if (mtime == entry.mtimeNanos && !racy) {
+            return false;
+        }
+        if (Arrays.equals(blobHash(file, size, false), entry.hash)) {
+            return false;
+        }
+        // 开启了换行符转换时，暂存区里存的是 CRLF 转成 LF 之后的内容
+        return !(normalizeEol && Arrays.equals(blobHash(file, size, true), entry.hash));
+    }
+
+    // git 的 blob 对象哈希："blob <size>\0" + 文件内容；crlfToLf 时按 git add 的 clean 转换把 CRLF 换成 LF 再算
+    private byte[] blobHash(Path file, long size, boolean crlfToLf) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(hashLength == 32 ? "SHA-256" : "SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer content = size > 0 ? channel.map(FileChannel.MapMode.READ_ONLY, 0, size) : ByteBuffer.allocate(0);
+            if (!crlfToLf) {
+                digest.update(("blob " + size + "\0").getBytes(StandardCharsets.US_ASCII));
+                digest.update(content);
+                return digest.digest();
+            }
+            int limit = content.limit();
+            long crlf = 0;
+            for (int i = 0; i + 1 < limit; i++) {
+                if (content.get(i) == '\r' && content.get(i + 1) == '\n') {
+                    crlf++;
+                }
+            }
+            digest.update(("blob " + (size - crlf) + "\0").getBytes(StandardCharsets.US_ASCII));
+            byte[] chunk = new byte[8192];
+            int n = 0;
+            for (int i = 0; i < limit; i++) {
+                byte b = content.get(i);
+                if (b == '\r' && i + 1 < limit && content.get(i + 1) == '\n') {
+                    continue;
+                }
+                chunk[n++] = b;
+                if (n == chunk.length) {
+                    digest.update(chunk, 0, n);
+                    n = 0;
+                }
+            }
+            digest.update(chunk, 0, n);
+            return digest.digest();
+        }
+    }
+
+    // 暂存区条目：路径（/ 分隔，UTF-8）、mtime（纳秒）、size（低 32 位）、blob 哈希、合并阶段
+    public static final class Entry {
+        public final String path;
+        public final long mtimeNanos;
+        public final long size;
+        final byte[] hash;
+        final int stage;
+        final boolean assumeValid;
+        // 稀疏检出时不在工作区的条目，不和工作区比较
+        final boolean skipWorktree;
+        final boolean intentToAdd;
+
+        Entry(String path, long mtimeNanos, long size, byte[] hash, int stage, boolean assumeValid,
+              boolean skipWorktree, boolean intentToAdd) {
+            this.path = path;
+            this.mtimeNanos = mtimeNanos;
+            this.size = size;
+            this.hash = hash;
+            this.stage = stage;
+            this.assumeValid = assumeValid;
+            this.skipWorktree = skipWorktree;
+            this.intentToAdd = intentToAdd;
+        }
+    }
+}
@@ -0,0 +1,460 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+/**
+ * 类描述
+ *
+ * @author wjh
+ * @description 不启动 git 进程，直接从 .git/objects 读取 HEAD 中某个文件的内容：
+ *              HEAD → 分支 ref（松散 ref 或 packed-refs）→ commit → tree → 按路径逐级找到 blob；
+ *              对象既支持松散对象（zlib 压缩），也支持 pack 文件（idx v2 索引 + OFS/REF 增量还原）；
+ *              链接工作区的 HEAD 在自己的 git 目录里，objects、分支 ref、packed-refs 在 commondir 指向的公共目录里
+ * @date 2026/3/12 下午2:10
+ */
+public class GitObjectReader {
+
+    private static final int TYPE_COMMIT = 1;
+    private static final int TYPE_TREE = 2;
+    private static final int TYPE_BLOB = 3;
+    private static final int TYPE_OFS_DELTA = 6;
+    private static final int TYPE_REF_DELTA = 7;
+
+    // HEAD 等工作区私有文件所在的目录
+    private final Path gitDir;
+    // objects、refs、packed-refs 所在的目录（普通仓库与 gitDir 相同）
+    private final Path commonDir;
+    private final int hashLength;
+    private final List<PackFile> packs;
+    // HEAD 对应的根 tree，null 表示还没有提交（所有文件都是新增）
+    private final byte[] headTree;
+    // 解析过的 tree（十六进制 id → 条目名 → 对象 id），并行读取同一目录下的文件时只解析一次
+    private final Map<String, Map<String, byte[]>> trees = new ConcurrentHashMap<>();
+
+    private GitObjectReader(Path gitDir, Path commonDir, int hashLength) throws IOException {
+        this.gitDir = gitDir;
+        this.commonDir = commonDir;
+        this.hashLength = hashLength;
+        this.packs = openPacks(commonDir.resolve("objects").resolve("pack"), hashLength);
+        byte[] head = resolveHead();
+        this.headTree = head == null ? null : treeOfCommit(head);
+    }
+
+    public static GitObjectReader forRepository(Path root) throws IOException {
+        Path git = GitDirs.gitDir(root);
+        Path common = GitDirs.commonDir(git);
+        return new GitObjectReader(git, common, "sha256".equals(GitDirs.config(common, "objectformat")) ? 32 : 20);
+    }
+
+    /**
+     * 读取 HEAD 中该文件的内容；HEAD 不存在、文件不在 HEAD 中、或者该路径在 HEAD 中不是文件（目录、子模块）时返回 null
+     */
+    public byte[] headBlob(String relativePath) throws IOException {
+        byte[] id = headObjectId(relativePath);
+        if (id == null) {
+            return null;
+        }
+        byte[][] object = read(id);
+        return type(object) == TYPE_BLOB ? object[1] : null;
+    }
+
+    /**
+     * HEAD 的 tree 中该路径记录的对象 ID，只走 tree、不读取对象本身（用来和暂存区条目的哈希比较）；
+     * HEAD 不存在或路径不在 HEAD 中时返回 null，路径在 HEAD 中是目录时返回的是 tree 的 ID
+     */
+    public byte[] headObjectId(String relativePath) throws IOException {
+        if (headTree == null) {
+            return null;
+        }
+        byte[] id = headTree;
+        String[] segments = relativePath.split("/");
+        for (int i = 0; i < segments.length; i++) {
+            id = tree(id).get(segments[i]);
+            if (id == null) {
+                return null;
+            }
+        }
+        return id;
+    }
+
+    public boolean hasHead() {
+        return headTree != null;
+    }
+
+    // ---------- ref 解析 ----------
+
+    private byte[] resolveHead() throws IOException {
+        String ref = "HEAD";
+        for (int depth = 0; depth < 5; depth++) {
+            String value = readRef(ref);
+            if (value == null) {
+                return null;
+            }
+            if (!value.startsWith("ref:")) {
+                return hex(value);
+            }
+            ref = value.substring(4).trim();
+        }
+        throw new IOException("符号引用层数过多：" + ref);
+    }
+
+    private String readRef(String ref) throws IOException {
+        // HEAD 和 refs/worktree/、refs/bisect/ 是每个工作区私有的，其余 ref 都在公共目录
+        boolean perWorktree = !ref.startsWith("refs/") || ref.startsWith("refs/worktree/") || ref.startsWith("refs/bisect/");
+        Path loose = (perWorktree ? gitDir : commonDir).resolve(ref);
+        if (Files.isRegularFile(loose)) {
+            return new String(Files.readAllBytes(loose), StandardCharsets.UTF_8).trim();
+        }
+        Path packedRefs = commonDir.resolve("packed-refs");
+        if (Files.isRegularFile(packedRefs)) {
+            for (String line : Files.readAllLines(packedRefs, StandardCharsets.UTF_8)) {
+                if (!line.startsWith("#") && !line.startsWith("^") && line.endsWith(" " + ref)) {
+                    return line.substring(0, line.indexOf(' '));
+                }
+            }
+        }
+        // 新仓库还没有提交时分支 ref 不存在
+        return null;
+    }
+
+    private byte[] treeOfCommit(byte[] commitId) throws IOException {
+        byte[][] commit = read(commitId);
+        if (type(commit) != TYPE_COMMIT) {
+            throw new IOException("HEAD 指向的不是 commit：" + hex(commitId));
+        }
+        // commit 内容第一行固定是 "tree <id>"
+        String header = new String(commit[1], 0, 5 + hashLength * 2, StandardCharsets.US_ASCII);
+        return hex(header.substring(5));
+    }
+
+    // tree 条目格式：<mode> <name>\0<id>；子模块（gitlink，mode 160000）指向别的仓库里的 commit，
+    // 本仓库里没有这个对象，不放进条目表，按“不在 HEAD 中”处理
+    private Map<String, byte[]> tree(byte[] id) throws IOException {
+        String key = hex(id);
+        Map<String, byte[]> entries = trees.get(key);
+        if (entries != null) {
+            return entries;
+        }
+        byte[][] object = read(id);
+        if (type(object) != TYPE_TREE) {
+            return Collections.emptyMap();
+        }
+        byte[] data = object[1];
+        entries = new HashMap<>();
+        int pos = 0;
+        while (pos < data.length) {
+            int space = indexOf(data, (byte) ' ', pos);
+            int nul = indexOf(data, (byte) 0, space);
+            if (!isGitlink(data, pos, space)) {
+                String name = new String(data, space + 1, nul - space - 1, StandardCharsets.UTF_8);
+                entries.put(name, Arrays.copyOfRange(data, nul + 1, nul + 1 + hashLength));
+            }
+            pos = nul + 1 + hashLength;
+        }
+        trees.put(key, entries);
+        return entries;
+    }
+
+    private static boolean isGitlink(byte[] data, int from, int to) {
+        return to - from == 6 && new String(data, from, 6, StandardCharsets.US_ASCII).equals("160000");
+    }
+
+    // ---------- 对象读取：返回 {{类型}, 内容} ----------
+
+    private byte[][] read(byte[] id) throws IOException {
+        for (PackFile pack : packs) {
+            long offset = pack.find(id);
+            if (offset >= 0) {
+                return readPacked(pack, offset);
+            }
+        }
+        String hex = hex(id);
+        Path loose = commonDir.resolve("objects").resolve(hex.substring(0, 2)).resolve(hex.substring(2));
+        if (!Files.isRegularFile(loose)) {
+            throw new IOException("找不到对象：" + hex);
+        }
+        return readLoose(Files.readAllBytes(loose));
+    }
+
+    // 松散对象：zlib("<类型> <长度>\0<内容>")
+    private static byte[][] readLoose(byte[] compressed) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] header = new byte[64];
+            int headerLength = 0;
+            int nul = -1;
+            // 先只解压够头部的几十个字节，拿到长度后一次分配内容数组
+            while (nul < 0) {
+                if (headerLength == header.length || inflater.inflate(header, headerLength, 1) == 0) {
+                    throw new IOException("松散对象头部损坏");
+                }
+                if (header[headerLength] == 0) {
+                    nul = headerLength;
+                }
+                headerLength++;
+            }
+            String[] typeAndSize = new String(header, 0, nul, StandardCharsets.US_ASCII).split(" ");
+            byte[] data = new byte[Integer.parseInt(typeAndSize[1])];
+            inflateFully(inflater, data);
+            return new byte[][]{{(byte) typeCode(typeAndSize[0])}, data};
+        } catch (DataFormatException e) {
+            throw new IOException("松散对象解压失败", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private byte[][] readPacked(PackFile pack, long offset) throws IOException {
+        ByteBuffer data = pack.data;
+        int pos = (int) offset;
+        int c = data.get(pos++) & 0xff;
+        int type = (c >>> 4) & 7;
+        long size = c & 0x0f;
+        for (int shift = 4; (c & 0x80) != 0; shift += 7) {
+            c = data.get(pos++) & 0xff;
+            size |= (long) (c & 0x7f) << shift;
+        }
+        if (type == TYPE_OFS_DELTA || type == TYPE_REF_DELTA) {
+            byte[][] base;
+            if (type == TYPE_OFS_DELTA) {
+                // 基对象在同一个 pack 里，位置是“当前偏移 - 变长编码的距离”
+                c = data.get(pos++) & 0xff;
+                long distance = c & 0x7f;
+                while ((c & 0x80) != 0) {
+                    c = data.get(pos++) & 0xff;
+                    distance = ((distance + 1) << 7) | (c & 0x7f);
+                }
+                base = readPacked(pack, offset - distance);
+            } else {
+                byte[] baseId = new byte[hashLength];
+                data.get(pos, baseId);
+                pos += hashLength;
+                base = read(baseId);
+            }
+            byte[] delta = inflate(data, pos, (int) size);
+            return new byte[][]{base[0], applyDelta(base[1], delta)};
+        }
+        return new byte[][]{{(byte) type}, inflate(data, pos, (int) size)};
+    }
+
+    private static byte[] inflate(ByteBuffer data, int pos, int size) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data.duplicate().position(pos));
+            byte[] out = new byte[size];
+            inflateFully(inflater, out);
+            return out;
+        } catch (DataFormatException e) {
+            throw new IOException("pack 对象解压失败", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static void inflateFully(Inflater inflater, byte[] out) throws DataFormatException, IOException {
+        int filled = 0;
+        while (filled < out.length) {
+            int n = inflater.inflate(out, filled, out.length - filled);
+            if (n == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                throw new IOException("对象内容比头部声明的短");
+            }
+            filled += n;
+        }
+    }
+
+    /**
+     * 增量格式：源长度、目标长度（各为 7 位一组的变长整数），之后是指令序列：
+     * 最高位为 1 是“从基对象复制”，低 4 位 / 中间 3 位分别标记偏移和长度由哪几个字节组成；
+     * 最高位为 0 是“插入”，低 7 位是紧跟着的字面字节数
+     */
+    private static byte[] applyDelta(byte[] base, byte[] delta) throws IOException {
+        int[] pos = {0};
+        long sourceSize = varint(delta, pos);
+        long targetSize = varint(delta, pos);
+        if (sourceSize != base.length) {
+            throw new IOException("增量的基对象长度不匹配");
+        }
+        byte[] out = new byte[(int) targetSize];
+        int written = 0;
+        int p = pos[0];
+        while (p < delta.length) {
+            int op = delta[p++] & 0xff;
+            if ((op & 0x80) != 0) {
+                int copyOffset = 0;
+                int copySize = 0;
+                for (int i = 0; i < 4; i++) {
+                    if ((op & (1 << i)) != 0) {
+                        copyOffset |= (delta[p++] & 0xff) << (8 * i);
+                    }
+                }
+                for (int i = 0; i < 3; i++) {
+                    if ((op & (0x10 << i)) != 0) {
+                        copySize |= (delta[p++] & 0xff) << (8 * i);
+                    }
+                }
+                if (copySize == 0) {
+                    copySize = 0x10000;
+                }
+                System.arraycopy(base, copyOffset, out, written, copySize);
+                written += copySize;
+            } else if (op != 0) {
+                System.arraycopy(delta, p, out, written, op);
+                p += op;
+                written += op;
+            } else {
+                throw new IOException("增量指令非法");
+            }
+        }
+        if (written != out.length) {
+            throw new IOException("增量还原后的长度不匹配");
+        }
+        return out;
+    }
+
+    private static long varint(byte[] data, int[] pos) {
+        long value = 0;
+        int shift = 0;
+        int c;
+        do {
+            c = data[pos[0]++] & 0xff;
+            value |= (long) (c & 0x7f) << shift;
+            shift += 7;
+        } while ((c & 0x80) != 0);
+        return value;
+    }
+
+    private static List<PackFile> openPacks(Path packDir, int hashLength) throws IOException {
+        List<PackFile> packs = new ArrayList<>();
+        if (!Files.isDirectory(packDir)) {
+            return packs;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(packDir, "*.idx")) {
+            for (Path idx : stream) {
+                String name = idx.getFileName().toString();
+                Path pack = idx.resolveSibling(name.substring(0, name.length() - 4) + ".pack");
+                if (Files.isRegularFile(pack)) {
+                    packs.add(new PackFile(idx, pack, hashLength));
+                }
+            }
+        }
+        return packs;
+    }
+
+    private static int typeCode(String type) {
+        switch (type) {
+            case "commit":
+                return TYPE_COMMIT;
+            case "tree":
+                return TYPE_TREE;
+            case "blob":
+                return TYPE_BLOB;
+            default:
+                return 4;
+        }
+    }
+
+    private static int type(byte[][] object) {
+        return object[0][0];
+    }
+
+    private static int indexOf(byte[] data, byte b, int from) {
+        for (int i = from; i < data.length; i++) {
+            if (data[i] == b) {
+                return i;
+            }
+        }
+        return data.length;
+    }
+
+    static String hex(byte[] id) {
+        StringBuilder sb = new StringBuilder(id.length * 2);
+        for (byte b : id) {
+            sb.append(Character.forDigit((b >>> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+
+    static byte[] hex(String hex) {
+        byte[] id = new byte[hex.length() / 2];
+        for (int i = 0; i < id.length; i++) {
+            id[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+        }
+        return id;
+    }
+
+    /**
+     * pack 文件：.idx（v2）是“256 项扇出表 + 排好序的对象 id + CRC + 偏移”，.pack 是对象数据，两者都内存映射；
+     * 超过 2GB 的 pack 需要分段映射，这里没有处理
+     */
+    private static final class PackFile {
+        private static final int IDX_MAGIC = 0xff744f63;
+
+        final MappedByteBuffer index;
+        final MappedByteBuffer data;
+        final int hashLength;
+        final int count;
+
+        PackFile(Path idx, Path pack, int hashLength) throws IOException {
+            this.index = map(idx);
+            this.data = map(pack);
+            this.hashLength = hashLength;
+            if (index.getInt(0) != IDX_MAGIC || index.getInt(4) != 2) {
+                throw new IOException("只支持 v2 格式的 pack 索引：" + idx);
+            }
+            this.count = index.getInt(8 + 255 * 4);
+        }
+
+        private static MappedByteBuffer map(Path file) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        }
+
+        // 扇出表确定首字节对应的区间，区间内二分查找；找不到返回 -1
+        long find(byte[] id) {
+            int first = id[0] & 0xff;
+            int low = first == 0 ? 0 : index.getInt(8 + (first - 1) * 4);
+            int high = index.getInt(8 + first * 4) - 1;
+            int idsStart = 8 + 256 * 4;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = compare(idsStart + mid * hashLength, id);
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return offset(mid);
+                }
+            }
+            return -1;
+        }
+
+        private int compare(int at, byte[] id) {
+            for (int i = 0; i < hashLength; i++) {
+                int diff = (index.get(at + i) & 0xff) - (id[i] & 0xff);
+                if (diff != 0) {
+                    return diff;
+                }
+            }
+            return 0;
+        }
+
+        // 偏移表每项 4 字节，最高位为 1 时低 31 位指向 8 字节的大偏移表
+        private long offset(int position) {
+            int offsetsStart = 8 + 256 * 4 + count * hashLength + count * 4;
+            int small = index.getInt(offsetsStart + position * 4);
+            if (small >= 0) {
+                return small;
+            }
+            return index.getLong(offsetsStart + count * 4 + (small & 0x7fffffff) * 8);
+        }
+    }
+}
@@ -0,0 +1,301 @@
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+/**
+ * 类描述
+ *
+ * @author wjh
+ * @description Markdown 文档扫描器：遍历时剪掉忽略目录，子目录并行遍历，目录索引缓存到磁盘，
+ *              再次扫描时目录 mtime 没变就直接复用上次的文件列表，只重新列出有变化的目录；
+ *              mtime 不早于上次扫描开始时间的目录可能在列出之后又被改过而 mtime 不变（racy），一律重新列出
+ * @date 2026/3/6 上午10:12
+ */
+public class MarkdownScanner {
+
+    public static final Set<String> DEFAULT_IGNORED = new HashSet<>(Arrays.asList(
+            ".git", ".idea", ".gradle", "node_modules", "target"
+    ));
+
+    private static final int INDEX_VERSION = 2;
+
+    private final Path root;
+    private final Set<String> ignored;
+    private final Path indexFile;
+    private final ForkJoinPool pool;
+    // 上次扫描的目录索引（相对路径 → 目录快照）
+    private Map<String, DirEntry> previous = Collections.emptyMap();
+    // 上次扫描开始的时间（按秒向下取整，兼容 mtime 只精确到秒的文件系统），mtime 不早于它的目录不能复用
+    private long previousScanMillis;
+    private final Map<String, DirEntry> current = new ConcurrentHashMap<>();
+    private final AtomicInteger listedDirs = new AtomicInteger();
+
+    public MarkdownScanner(Path root, Set<String> ignored, Path indexFile) {
+        this.root = root.toAbsolutePath().normalize();
+        this.ignored = ignored;
+        this.indexFile = indexFile;
+        this.pool = ForkJoinPool.commonPool();
+    }
+
+    // 默认索引放在 .git 目录下（不会被提交）；不是 git 仓库时不缓存
+    public static MarkdownScanner forRepository(Path root) {
+        Path git = root.resolve(".git");
+        return new MarkdownScanner(root, DEFAULT_IGNORED, Files.isDirectory(git) ? git.resolve("md-scan.idx") : null);
+    }
+
+    // 返回按路径排序的 Markdown 文件
+    public List<MarkdownFile> scan() throws IOException {
+        previous = Collections.emptyMap();
+        previousScanMillis = 0;
+        if (indexFile != null) {
+            readIndex(indexFile);
+        }
+        long scanMillis = System.currentTimeMillis();
+        current.clear();
+        listedDirs.set(0);
+        pool.invoke(new DirTask(root, ""));
+        if (indexFile != null) {
+            writeIndex(indexFile, scanMillis - scanMillis % 1000, current);
+        }
+        List<MarkdownFile> files = new ArrayList<>();
+        for (DirEntry dir : current.values()) {
+            for (MarkdownFile file : dir.files) {
+                files.add(file);
+            }
+        }
+        files.sort(Comparator.comparing(f -> f.relativePath));
+        return files;
+    }
+
+    // 最近一次扫描中真正列出内容的目录数（其余目录直接复用索引）
+    public int listedDirs() {
+        return listedDirs.get();
+    }
+
+    public int totalDirs() {
+        return current.size();
+    }
+
+    private final class DirTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Path dir;
+        private final String relative;
+
+        DirTask(Path dir, String relative) {
+            this.dir = dir;
+            this.relative = relative;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                BasicFileAttributes attrs = Files.readAttributes(dir, BasicFileAttributes.class);
+                long mtime = attrs.lastModifiedTime().toMillis();
+                DirEntry cached = previous.get(relative);
+                boolean reusable = cached != null && cached.mtime == mtime && mtime < previousScanMillis;
+                DirEntry entry = reusable ? cached : list(mtime);
+                current.put(relative, entry);
+                List<DirTask> children = new ArrayList<>(entry.subdirs.size());
+                for (String name : entry.subdirs) {
+                    children.add(new DirTask(dir.resolve(name), relative.isEmpty() ? name : relative + "/" + name));
+                }
+                invokeAll(children);
+            } catch (NoSuchFileException e) {
+                // 索引里记录的子目录已被删除：父目录 mtime 已变，下次会重新列出
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        // 只遍历当前这一层：子目录在 preVisitDirectory 里记下后 SKIP_SUBTREE，交给子任务并行处理
+        private DirEntry list(long mtime) throws IOException {
+            listedDirs.incrementAndGet();
+            List<String> subdirs = new ArrayList<>();
+            List<MarkdownFile> files = new ArrayList<>();
+            Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path path, BasicFileAttributes attrs) {
+                    if (path.equals(dir)) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    String name = path.getFileName().toString();
+                    if (!ignored.contains(name)) {
+                        subdirs.add(name);
+                    }
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) {
+                    String name = path.getFileName().toString();
+                    if (attrs.isRegularFile() && name.endsWith(".md")) {
+                        files.add(new MarkdownFile(relative.isEmpty() ? name : relative + "/" + name));
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path path, IOException e) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            return new DirEntry(mtime, subdirs, files);
+        }
+    }
+
+    // 读入上次的索引；文件不存在、版本不符或已损坏时当作冷启动
+    private void readIndex(Path indexFile) {
+        if (!Files.isRegularFile(indexFile)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile), 1 << 16))) {
+            if (in.readInt() != INDEX_VERSION) {
+                return;
+            }
+            long scanMillis = in.readLong();
+            int dirCount = in.readInt();
+            Map<String, DirEntry> index = new HashMap<>(dirCount * 2);
+            for (int i = 0; i < dirCount; i++) {
+                String relative = in.readUTF();
+                long mtime = in.readLong();
+                int subdirCount = in.readInt();
+                List<String> subdirs = new ArrayList<>(subdirCount);
+                for (int j = 0; j < subdirCount; j++) {
+                    subdirs.add(in.readUTF());
+                }
+                int fileCount = in.readInt();
+                List<MarkdownFile> files = new ArrayList<>(fileCount);
+                for (int j = 0; j < fileCount; j++) {
+                    files.add(new MarkdownFile(in.readUTF()));
+                }
+                index.put(relative, new DirEntry(mtime, subdirs, files));
+            }
+            previous = index;
+            previousScanMillis = scanMillis;
+        } catch (IOException e) {
+            // 索引损坏时当作冷启动
+        }
+    }
+
+    private static void writeIndex(Path indexFile, long scanMillis, Map<String, DirEntry> index) throws IOException {
+        Path tmp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(INDEX_VERSION);
+            out.writeLong(scanMillis);
+            out.writeInt(index.size());
+            for (Map.Entry<String, DirEntry> e : index.entrySet()) {
+                DirEntry dir = e.getValue();
+                out.writeUTF(e.getKey());
+                out.writeLong(dir.mtime);
+                out.writeInt(dir.subdirs.size());
+                for (String name : dir.subdirs) {
+                    out.writeUTF(name);
+                }
+                out.writeInt(dir.files.size());
+                for (MarkdownFile file : dir.files) {
+                    out.writeUTF(file.relativePath);
+                }
+            }
+        }
+        Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // 一个 Markdown 文件：相对仓库根目录的路径（/ 分隔）
+    // 不缓存文件的修改时间和大小：复用目录索引时它们可能已经过期，需要时请直接 stat 文件
+    public static final class MarkdownFile {
+        public final String relativePath;
+
+        MarkdownFile(String relativePath) {
+            this.relativePath = relativePath;
+        }
+
+        public String name() {
+            return relativePath.substring(relativePath.lastIndexOf('/') + 1);
+        }
+    }
+
+    // 目录快照：目录自身 mtime（增删改名文件时会变）、子目录名、该层的 Markdown 文件
+    private static final class DirEntry {
+        final long mtime;
+        final List<String> subdirs;
+        final List<MarkdownFile> files;
+
+        DirEntry(long mtime, List<String> subdirs, List<MarkdownFile> files) {
+            this.mtime = mtime;
+            this.subdirs = subdirs;
+            this.files = files;
+        }
+    }
+}
+
+/**
+ * 扫描压测：在临时目录生成 5 万个文件（500 个目录 × 100 个文件，一半是 .md，另有 1 万个文件在 .git 下），
+ * 对比 Files.walk 全量遍历、冷启动扫描（无索引）、热启动扫描（有索引）的耗时
+ */
+class MarkdownScannerBenchmark {
+    public static void main(String[] args) throws IOException {
+        Path root = Files.createTempDirectory("md-scan-bench");
+        try {
+            generate(root);
+            Path index = root.resolve(".git").resolve("md-scan.idx");
+            for (int round = 1; round <= 3; round++) {
+                long t0 = System.nanoTime();
+                long walked;
+                try (java.util.stream.Stream<Path> stream = Files.walk(root)) {
+                    walked = stream.filter(Files::isRegularFile)
+                            .filter(path -> path.toString().endsWith(".md"))
+                            .filter(path -> !path.toString().contains(".git"))
+                            .map(Path::toFile)
+                            .count();
+                }
+                long t1 = System.nanoTime();
+                Files.deleteIfExists(index);
+                MarkdownScanner cold = new MarkdownScanner(root, MarkdownScanner.DEFAULT_IGNORED, index);
+                int coldCount = cold.scan().size();
+                long t2 = System.nanoTime();
+                MarkdownScanner warm = new MarkdownScanner(root, MarkdownScanner.DEFAULT_IGNORED, index);
+                int warmCount = warm.scan().size();
+                long t3 = System.nanoTime();
+                // 改动一个目录后再扫：只有这个目录需要重新列出
+                Files.write(root.resolve("d7/new-note-" + round + ".md"), "新笔记".getBytes("UTF-8"));
+                MarkdownScanner incremental = new MarkdownScanner(root, MarkdownScanner.DEFAULT_IGNORED, index);
+                int incrementalCount = incremental.scan().size();
+                long t4 = System.nanoTime();
+                System.out.printf("第 %d 轮  Files.walk: %6.1f ms (%d)   冷启动: %6.1f ms (%d)   热启动: %6.1f ms (%d)   改动 1 个目录: %6.1f ms (%d，重新列出 %d/%d 个目录)%n",
+                        round, (t1 - t0) / 1e6, walked, (t2 - t1) / 1e6, coldCount, (t3 - t2) / 1e6, warmCount,
+                        (t4 - t3) / 1e6, incrementalCount, incremental.listedDirs(), incremental.totalDirs());
+            }
+        } finally {
+            try (java.util.stream.Stream<Path> stream = Files.walk(root)) {
+                stream.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    private static void generate(Path root) throws IOException {
+        byte[] content = "# 笔记\n".getBytes("UTF-8");
+        for (int d = 0; d < 500; d++) {
+            Path dir = root.resolve("d" + (d % 50)).resolve("sub" + d);
+            if (d < 50) {
+                dir = root.resolve("d" + d);
+            }
+            Files.createDirectories(dir);
+            for (int f = 0; f < 100; f++) {
+                Files.write(dir.resolve("note" + f + (f % 2 == 0 ? ".md" : ".png")), content);
+            }
+        }
+        Path git = root.resolve(".git").resolve("objects");
+        for (int d = 0; d < 100; d++) {
+            Path dir = git.resolve(String.format("%02x", d));
+            Files.createDirectories(dir);
+            for (int f = 0; f < 100; f++) {
+                Files.write(dir.resolve("obj" + f + ".md"), content);
+            }
+        }
+    }
+}
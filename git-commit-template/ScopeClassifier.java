@@ -0,0 +1,341 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.IntStream;
+/**
+ * 类描述
+ *
+ * @author wjh
+ * @description commit message 的 scope 分类器：把配置里的所有路径片段预先建成一个 Aho-Corasick 自动机，
+ *              对一个路径只扫一遍就能找出所有命中的片段；目录优先于文件名、外层目录优先于内层，
+ *              同一段路径里按“最长片段优先、同长取最靠前”确定唯一的 scope，不再依赖 HashMap 的遍历顺序
+ * @date 2026/3/11 上午9:25
+ */
+public class ScopeClassifier {
+
+    public static final String DEFAULT_SCOPE = "其他";
+
+    // 配置文件缺失时使用的内置映射（与原 DOCS_MAP 相同）
+    private static final String[][] BUILT_IN = {
+            {"Java基础", "Java基础"}, {"Java并发编程", "Java并发"}, {"Java虚拟机", "JVM"}, {"Mysql数据库", "MySQL"},
+            {"Redis", "Redis"}, {"Linux", "Linux"}, {"Maven", "Maven"}, {"Git", "Git"}
+    };
+
+    private static final long EMPTY = -1L;
+    // 批量分类时超过这个数量才并行
+    private static final int PARALLEL_THRESHOLD = 4096;
+
+    // 转移表：开放寻址哈希，键为 (状态 << 16) | 字符，值为下一个状态
+    private final long[] edgeKeys;
+    private final int[] edgeTargets;
+    private final int edgeMask;
+    // 失败指针
+    private final int[] fail;
+    // 每个状态（含失败链上的后缀）能命中的最长片段下标，-1 表示没有
+    private final int[] best;
+    private final String[] patterns;
+    private final String[] scopes;
+
+    public ScopeClassifier(Map<String, String> patternToScope) {
+        List<String> sorted = new ArrayList<>(patternToScope.keySet());
+        sorted.removeIf(String::isEmpty);
+        Collections.sort(sorted);
+        this.patterns = sorted.toArray(new String[0]);
+        this.scopes = new String[patterns.length];
+        int maxStates = 1;
+        for (int i = 0; i < patterns.length; i++) {
+            scopes[i] = patternToScope.get(patterns[i]);
+            maxStates += patterns[i].length();
+        }
+        int capacity = Integer.highestOneBit(Math.max(4, maxStates * 2 - 1)) << 1;
+        this.edgeKeys = new long[capacity];
+        this.edgeTargets = new int[capacity];
+        this.edgeMask = capacity - 1;
+        Arrays.fill(edgeKeys, EMPTY);
+
+        // 1. 插入所有片段，建出 trie
+        int[] output = new int[maxStates];
+        Arrays.fill(output, -1);
+        int states = 1;
+        for (int p = 0; p < patterns.length; p++) {
+            int state = 0;
+            for (int i = 0; i < patterns[p].length(); i++) {
+                char c = patterns[p].charAt(i);
+                int next = next(state, c);
+                if (next < 0) {
+                    next = states++;
+                    putEdge(state, c, next);
+                }
+                state = next;
+            }
+            output[state] = p;
+        }
+
+        // 2. BFS 计算失败指针，同时把失败链上更长的命中合并到 best
+        this.fail = new int[states];
+        this.best = new int[states];
+        int[][] children = childrenOf(states);
+        char[][] labels = labelsOf(states, children);
+        int[] queue = new int[states];
+        int head = 0;
+        int tail = 0;
+        best[0] = -1;
+        for (int child : children[0]) {
+            fail[child] = 0;
+            best[child] = output[child];
+            queue[tail++] = child;
+        }
+        while (head < tail) {
+            int state = queue[head++];
+            for (int k = 0; k < children[state].length; k++) {
+                int child = children[state][k];
+                char c = labels[state][k];
+                int f = fail[state];
+                int target;
+                while ((target = next(f, c)) < 0 && f != 0) {
+                    f = fail[f];
+                }
+                fail[child] = target >= 0 ? target : 0;
+                best[child] = longer(output[child], best[fail[child]]);
+                queue[tail++] = child;
+            }
+        }
+    }
+
+    // 从配置文件加载（UTF-8 的 properties：路径片段 = scope）；文件不存在时用内置映射
+    public static ScopeClassifier load(Path config) throws IOException {
+        Map<String, String> mapping = new HashMap<>();
+        if (Files.isRegularFile(config)) {
+            Properties properties = new Properties();
+            try (Reader reader = Files.newBufferedReader(config, StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+            for (String pattern : properties.stringPropertyNames()) {
+                mapping.put(pattern, properties.getProperty(pattern).trim());
+            }
+        } else {
+            for (String[] pair : BUILT_IN) {
+                mapping.put(pair[0], pair[1]);
+            }
+        }
+        return new ScopeClassifier(mapping);
+    }
+
+    /**
+     * 单次扫描路径：每走一个字符，当前状态的 best 就是“以这个字符结尾的最长命中片段”。
+     * 命中按起始位置所在的路径段比较：越靠外的段越优先（目录总是优先于文件名，
+     * 如 Linux/Java虚拟机调优.md 归 Linux）；同一段内取最长的，长度相同时先出现的优先（严格大于才替换）
+     */
+    public String classify(String relativePath) {
+        int state = 0;
+        int matched = -1;
+        int matchedStart = Integer.MAX_VALUE;
+        // 命中片段起始位置所在路径段的前一个 '/' 的位置，第一段为 -1；越小越靠外
+        int matchedSegment = Integer.MAX_VALUE;
+        for (int i = 0; i < relativePath.length(); i++) {
+            char c = relativePath.charAt(i);
+            int target;
+            while ((target = next(state, c)) < 0 && state != 0) {
+                state = fail[state];
+            }
+            state = target >= 0 ? target : 0;
+            int hit = best[state];
+            if (hit >= 0) {
+                int length = patterns[hit].length();
+                int start = i - length + 1;
+                // 命中只在少数字符上发生，这时再往回找所在的段
+                int segment = relativePath.lastIndexOf('/', start);
+                if (matched < 0 || segment < matchedSegment
+                        || (segment == matchedSegment && (length > patterns[matched].length()
+                        || (length == patterns[matched].length() && start < matchedStart)))) {
+                    matched = hit;
+                    matchedStart = start;
+                    matchedSegment = segment;
+                }
+            }
+        }
+        return matched < 0 ? DEFAULT_SCOPE : scopes[matched];
+    }
+
+    // 批量分类：自动机只读、线程安全，数量较多时并行处理，结果与输入一一对应
+    public String[] classifyAll(List<String> relativePaths) {
+        String[] result = new String[relativePaths.size()];
+        IntStream indexes = IntStream.range(0, result.length);
+        if (result.length >= PARALLEL_THRESHOLD) {
+            indexes = indexes.parallel();
+        }
+        indexes.forEach(i -> result[i] = classify(relativePaths.get(i)));
+        return result;
+    }
+
+    public int size() {
+        return patterns.length;
+    }
+
+    private int longer(int a, int b) {
+        if (a < 0) {
+            return b;
+        }
+        if (b < 0) {
+            return a;
+        }
+        return patterns[a].length() >= patterns[b].length() ? a : b;
+    }
+
+    private int next(int state, char c) {
+        long key = ((long) state << 16) | c;
+        for (int slot = hash(key); ; slot = (slot + 1) & edgeMask) {
+            long k = edgeKeys[slot];
+            if (k == key) {
+                return edgeTargets[slot];
+            }
+            if (k == EMPTY) {
+                return -1;
+            }
+        }
+    }
+
+    private void putEdge(int state, char c, int target) {
+        long key = ((long) state << 16) | c;
+        int slot = hash(key);
+        while (edgeKeys[slot] != EMPTY) {
+            slot = (slot + 1) & edgeMask;
+        }
+        edgeKeys[slot] = key;
+        edgeTargets[slot] = target;
+    }
+
+    private int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & edgeMask;
+    }
+
+    // 以下两个方法只在构建时使用：把哈希表里的边还原成每个状态的子节点列表，供 BFS 遍历
+    private int[][] childrenOf(int states) {
+        int[] counts = new int[states];
+        for (long key : edgeKeys) {
+            if (key != EMPTY) {
+                counts[(int) (key >>> 16)]++;
+            }
+        }
+        int[][] children = new int[states][];
+        for (int s = 0; s < states; s++) {
+            children[s] = new int[counts[s]];
+        }
+        Arrays.fill(counts, 0);
+        for (int slot = 0; slot < edgeKeys.length; slot++) {
+            if (edgeKeys[slot] != EMPTY) {
+                int s = (int) (edgeKeys[slot] >>> 16);
+                children[s][counts[s]++] = edgeTargets[slot];
+            }
+        }
+        return children;
+    }
+
+    private char[][] labelsOf(int states, int[][] children) {
+        char[][] labels = new char[states][];
+        int[] filled = new int[states];
+        for (int s = 0; s < states; s++) {
+            labels[s] = new char[children[s].length];
+        }
+        for (long key : edgeKeys) {
+            if (key != EMPTY) {
+                int s = (int) (key >>> 16);
+                labels[s][filled[s]++] = (char) key;
+            }
+        }
+        return labels;
+    }
+}
+
+/**
+ * 分类压测：500 个 scope，10 万个路径，对比原来“遍历 HashMap 逐个 contains”和自动机单次扫描、批量并行的耗时
+ */
+class ScopeClassifierBenchmark {
+    public static void main(String[] args) {
+        Map<String, String> mapping = new HashMap<>();
+        String[] topics = {"并发", "缓存", "网络", "存储", "调度", "索引", "事务", "日志", "限流", "消息"};
+        for (int i = 0; i < 500; i++) {
+            mapping.put(topics[i % topics.length] + "专题" + i, "S" + i);
+        }
+        List<String> paths = new ArrayList<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 100_000; i++) {
+            int topic = random.nextInt(600);
+            String dir = topic < 500 ? topics[topic % topics.length] + "专题" + topic : "杂项" + topic;
+            paths.add(dir + "/第" + random.nextInt(50) + "章/笔记" + i + ".md");
+        }
+
+        ScopeClassifier classifier = new ScopeClassifier(mapping);
+        for (int round = 1; round <= 3; round++) {
+            long t0 = System.nanoTime();
+            String[] linear = new String[paths.size()];
+            for (int i = 0; i < paths.size(); i++) {
+                String scope = ScopeClassifier.DEFAULT_SCOPE;
+                for (Map.Entry<String, String> entry : mapping.entrySet()) {
+                    if (paths.get(i).contains(entry.getKey())) {
+                        scope = entry.getValue();
+                        break;
+                    }
+                }
+                linear[i] = scope;
+            }
+            long t1 = System.nanoTime();
+            String[] single = new String[paths.size()];
+            for (int i = 0; i < paths.size(); i++) {
+                single[i] = classifier.classify(paths.get(i));
+            }
+            long t2 = System.nanoTime();
+            String[] batch = classifier.classifyAll(paths);
+            long t3 = System.nanoTime();
+            // “专题1” 是 “专题12”、“专题123” 的子串：线性扫描的结果取决于 HashMap 顺序，自动机总是取最长的
+            int differ = 0;
+            for (int i = 0; i < linear.length; i++) {
+                if (!linear[i].equals(single[i])) {
+                    differ++;
+                }
+            }
+            if (!Arrays.equals(single, batch)) {
+                throw new AssertionError("批量分类结果应与逐个分类一致");
+            }
+            System.out.printf("第 %d 轮  逐个 contains: %6.1f ms   自动机: %5.1f ms   批量并行: %5.1f ms   （线性扫描选错 scope 的路径 %d 个）%n",
+                    round, (t1 - t0) / 1e6, (t2 - t1) / 1e6, (t3 - t2) / 1e6, differ);
+        }
+
+        ScopeClassifier defaults = new ScopeClassifier(Collections.singletonMap("Java", "Java"));
+        Map<String, String> nested = new HashMap<>();
+        nested.put("Java", "Java");
+        nested.put("Java并发编程", "Java并发");
+        nested.put("Redis", "Redis");
+        ScopeClassifier overlapping = new ScopeClassifier(nested);
+        check(overlapping.classify("Java并发编程/Redis分布式锁.md"), "Java并发");
+        check(overlapping.classify("Redis/Java客户端.md"), "Redis");
+        check(overlapping.classify("笔记/Java并发编程入门.md"), "Java并发");
+        check(defaults.classify("Linux/命令.md"), ScopeClassifier.DEFAULT_SCOPE);
+
+        // 目录优先于文件名：文件名里更长的片段不能盖过目录
+        Map<String, String> builtIn = new HashMap<>();
+        builtIn.put("Java虚拟机", "JVM");
+        builtIn.put("Java并发编程", "Java并发");
+        builtIn.put("Linux", "Linux");
+        builtIn.put("Redis", "Redis");
+        builtIn.put("Maven", "Maven");
+        ScopeClassifier dirsFirst = new ScopeClassifier(builtIn);
+        check(dirsFirst.classify("Linux/Java虚拟机调优.md"), "Linux");
+        check(dirsFirst.classify("Redis/Java并发编程与锁.md"), "Redis");
+        check(dirsFirst.classify("Linux/Redis/部署.md"), "Linux");
+        check(dirsFirst.classify("杂项/Redis/Java虚拟机调优.md"), "Redis");
+        // 同一段内长度相同（Redis、Linux、Maven 都是 5 个字符）：先出现的优先
+        check(dirsFirst.classify("Redis与Linux对比/笔记.md"), "Redis");
+        check(dirsFirst.classify("Linux与Redis对比/笔记.md"), "Linux");
+        check(dirsFirst.classify("杂项/Maven和Redis.md"), "Maven");
+        System.out.println("最长匹配 / 同长取靠前 / 目录优先 / 默认 scope 检查通过");
+    }
+
+    private static void check(String actual, String expected) {
+        if (!actual.equals(expected)) {
+            throw new AssertionError("期望 " + expected + "，实际 " + actual);
+        }
+    }
+}
@@ -0,0 +1,416 @@
+package Action.Adapter;
+
+import Action.Template.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// 1. 目标接口：异步统一支付接口，金额以分为单位，避免每笔支付做 double → String 转换
+interface AsyncUnifiedPayService {
+    CompletableFuture<PayResult> unifiedPayAsync(String channel, String orderId, long amountCents);
+}
+
+// 支付结果
+class PayResult {
+    private final String orderId;
+    private final String channel;
+    private final boolean success;
+    private final String message;
+
+    PayResult(String orderId, String channel, boolean success, String message) {
+        this.orderId = orderId;
+        this.channel = channel;
+        this.success = success;
+        this.message = message;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return "支付结果{" + channel + ", 订单[" + orderId + "], " + (success ? "成功" : "失败") + ", " + message + '}';
+    }
+}
+
+// 待支付请求
+class PayRequest {
+    final String orderId;
+    final long amountCents;
+    final long submitNanos = System.nanoTime();
+    final CompletableFuture<PayResult> future = new CompletableFuture<>();
+
+    PayRequest(String orderId, long amountCents) {
+        this.orderId = orderId;
+        this.amountCents = amountCents;
+    }
+}
+
+// 2. 支付通道：第三方支付接口的异步适配点（调用本身仍是阻塞的，由调度器放到通道专属线程池里执行）
+interface PayChannel {
+    String name();
+
+    PayResult pay(String orderId, long amountCents);
+
+    // 通道一次最多合并多少笔，1 表示不支持批量
+    default int maxBatchSize() {
+        return 1;
+    }
+
+    // 批量支付，结果与 requests 一一对应；默认逐笔调用
+    default List<PayResult> payBatch(List<PayRequest> requests) {
+        List<PayResult> results = new ArrayList<>(requests.size());
+        for (PayRequest request : requests) {
+            results.add(pay(request.orderId, request.amountCents));
+        }
+        return results;
+    }
+}
+
+// 3. 适配器：把已有的同步适配器（WechatPayAdapter / AlipayPayAdapter 等）包装成支付通道，
+//    金额单位换算仍由适配器负责，这里只按分透传
+class AdapterPayChannel implements PayChannel {
+    private final String name;
+    private final UnifiedPayService adapter;
+
+    AdapterPayChannel(String name, UnifiedPayService adapter) {
+        this.name = name;
+        this.adapter = adapter;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public PayResult pay(String orderId, long amountCents) {
+        adapter.unifiedPayCents(orderId, amountCents);
+        return new PayResult(orderId, name, true, "OK");
+    }
+}
+
+// 本地桩通道：固定延迟 + 按比例失败，支持批量，用于测试和压测
+class StubPayChannel implements PayChannel {
+    private final String name;
+    private final long latencyMillis;
+    private final int batchSize;
+    private final int failEvery;
+    private final AtomicInteger calls = new AtomicInteger();
+    private final LongAdder remoteCalls = new LongAdder();
+
+    // failEvery = n 表示每 n 笔失败一笔，0 表示从不失败
+    StubPayChannel(String name, long latencyMillis, int batchSize, int failEvery) {
+        this.name = name;
+        this.latencyMillis = latencyMillis;
+        this.batchSize = batchSize;
+        this.failEvery = failEvery;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public int maxBatchSize() {
+        return batchSize;
+    }
+
+    @Override
+    public PayResult pay(String orderId, long amountCents) {
+        remoteCalls.increment();
+        sleep();
+        return result(orderId);
+    }
+
+    // 一次远程调用处理整批，延迟与单笔相同
+    @Override
+    public List<PayResult> payBatch(List<PayRequest> requests) {
+        remoteCalls.increment();
+        sleep();
+        List<PayResult> results = new ArrayList<>(requests.size());
+        for (PayRequest request : requests) {
+            results.add(result(request.orderId));
+        }
+        return results;
+    }
+
+    public long remoteCalls() {
+        return remoteCalls.sum();
+    }
+
+    private PayResult result(String orderId) {
+        boolean success = failEvery == 0 || calls.incrementAndGet() % failEvery != 0;
+        return new PayResult(orderId, name, success, success ? "OK" : "通道返回失败");
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(latencyMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
+
+/**
+ * 4. 异步支付服务：每个通道一个独立的调度器
+ *
+ * - 并发隔离：每个通道有自己的固定线程池 + 有界队列，慢通道只会占满自己的线程，
+ *   队列满时直接返回失败的 future，不阻塞下单线程；
+ * - 请求合并：同一订单在途时重复提交，复用同一个 future，只付一次；
+ * - 批量：通道支持批量时，攒够 maxBatchSize 笔或等满 windowMicros 后一次调用；
+ * - 超时：返回给调用方的 future 到时抛 TimeoutException。超时不代表未扣款，需要后续查单 / 对账；
+ * - 每个通道单独统计延迟分位数。
+ */
+class AsyncPayService implements AsyncUnifiedPayService {
+    private final Map<String, ChannelDispatcher> dispatchers = new ConcurrentHashMap<>();
+    private final long timeoutMillis;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "pay-batch-timer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public AsyncPayService(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    // 注册通道：maxConcurrency 为同时在途的远程调用数，queueCapacity 为排队的批次数
+    public AsyncPayService register(PayChannel channel, int maxConcurrency, int queueCapacity, long windowMicros) {
+        dispatchers.put(channel.name(), new ChannelDispatcher(channel, maxConcurrency, queueCapacity, windowMicros));
+        return this;
+    }
+
+    @Override
+    public CompletableFuture<PayResult> unifiedPayAsync(String channel, String orderId, long amountCents) {
+        ChannelDispatcher dispatcher = dispatchers.get(channel);
+        if (dispatcher == null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("未注册的支付通道：" + channel));
+        }
+        return dispatcher.submit(orderId, amountCents).copy().orTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
+                .whenComplete((result, error) -> {
+                    if (error instanceof TimeoutException) {
+                        dispatcher.timeouts.increment();
+                    }
+                });
+    }
+
+    public LatencyHistogram latency(String channel) {
+        return dispatchers.get(channel).latency;
+    }
+
+    public void printStats() {
+        for (ChannelDispatcher d : dispatchers.values()) {
+            System.out.printf("通道 %-8s 延迟 %s，合并重复 %d，拒绝 %d，超时 %d%n",
+                    d.channel.name(), d.latency, d.coalesced.sum(), d.rejected.sum(), d.timeouts.sum());
+        }
+    }
+
+    public void shutdown() {
+        timer.shutdown();
+        for (ChannelDispatcher d : dispatchers.values()) {
+            d.executor.shutdown();
+        }
+    }
+
+    private final class ChannelDispatcher {
+        final PayChannel channel;
+        final int maxBatchSize;
+        final long windowMicros;
+        final ThreadPoolExecutor executor;
+        final ConcurrentHashMap<String, PayRequest> inFlight = new ConcurrentHashMap<>();
+        final ConcurrentLinkedQueue<PayRequest> pending = new ConcurrentLinkedQueue<>();
+        final AtomicInteger pendingCount = new AtomicInteger();
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder coalesced = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+        final LongAdder timeouts = new LongAdder();
+
+        ChannelDispatcher(PayChannel channel, int maxConcurrency, int queueCapacity, long windowMicros) {
+            this.channel = channel;
+            this.maxBatchSize = Math.max(1, channel.maxBatchSize());
+            this.windowMicros = windowMicros;
+            AtomicInteger seq = new AtomicInteger();
+            this.executor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), r -> {
+                Thread t = new Thread(r, "pay-" + channel.name() + "-" + seq.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+
+        CompletableFuture<PayResult> submit(String orderId, long amountCents) {
+            PayRequest request = new PayRequest(orderId, amountCents);
+            PayRequest existing = inFlight.putIfAbsent(orderId, request);
+            if (existing != null) {
+                // 金额不同就不是重复请求，不能合并到在途的那笔上（和 IdempotentPayService 一致，直接拒绝）
+                if (existing.amountCents != amountCents) {
+                    return CompletableFuture.failedFuture(new IllegalStateException("订单[" + orderId + "]重复支付金额不一致："
+                            + PayAmounts.yuan(existing.amountCents) + " / " + PayAmounts.yuan(amountCents)));
+                }
+                coalesced.increment();
+                return existing.future;
+            }
+            pending.offer(request);
+            if (pendingCount.incrementAndGet() >= maxBatchSize) {
+                flush();
+            } else {
+                scheduleFlush();
+            }
+            return request.future;
+        }
+
+        private void flush() {
+            List<PayRequest> batch = new ArrayList<>(maxBatchSize);
+            PayRequest request;
+            while (batch.size() < maxBatchSize && (request = pending.poll()) != null) {
+                batch.add(request);
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            pendingCount.addAndGet(-batch.size());
+            try {
+                executor.execute(() -> call(batch));
+            } catch (RejectedExecutionException e) {
+                rejected.add(batch.size());
+                for (PayRequest r : batch) {
+                    // 没有发出远程调用，不计入延迟统计
+                    inFlight.remove(r.orderId, r);
+                    r.future.completeExceptionally(new RejectedExecutionException("支付通道 " + channel.name() + " 繁忙"));
+                }
+            }
+            if (pendingCount.get() > 0) {
+                scheduleFlush();
+            }
+        }
+
+        private void scheduleFlush() {
+            if (scheduled.compareAndSet(false, true)) {
+                timer.schedule(() -> {
+                    scheduled.set(false);
+                    flush();
+                }, windowMicros, TimeUnit.MICROSECONDS);
+            }
+        }
+
+        private void call(List<PayRequest> batch) {
+            try {
+                if (batch.size() == 1) {
+                    PayRequest r = batch.get(0);
+                    complete(r, channel.pay(r.orderId, r.amountCents), null);
+                } else {
+                    List<PayResult> results = channel.payBatch(batch);
+                    for (int i = 0; i < batch.size(); i++) {
+                        complete(batch.get(i), results.get(i), null);
+                    }
+                }
+            } catch (RuntimeException e) {
+                for (PayRequest r : batch) {
+                    complete(r, null, e);
+                }
+            }
+        }
+
+        private void complete(PayRequest request, PayResult result, Throwable error) {
+            inFlight.remove(request.orderId, request);
+            latency.record(System.nanoTime() - request.submitNanos);
+            if (error == null) {
+                request.future.complete(result);
+            } else {
+                request.future.completeExceptionally(error);
+            }
+        }
+    }
+}
+
+// 测试类
+class AsyncPayTest {
+    public static void main(String[] args) {
+        StubPayChannel fast = new StubPayChannel("fast", 20, 16, 50);
+        StubPayChannel slow = new StubPayChannel("slow", 2000, 1, 0);
+        AsyncPayService payService = new AsyncPayService(500)
+                .register(fast, 8, 64, 2000)
+                .register(slow, 2, 4, 0);
+
+        // 重复提交同一订单：只付一次
+        CompletableFuture<PayResult> first = payService.unifiedPayAsync("fast", "ORD001", 9990);
+        CompletableFuture<PayResult> again = payService.unifiedPayAsync("fast", "ORD001", 9990);
+        // 同一订单在途时换了金额：不合并，直接失败
+        CompletableFuture<PayResult> changed = payService.unifiedPayAsync("fast", "ORD001", 8880);
+        System.out.println(first.join() + " / " + again.join());
+        try {
+            changed.join();
+            throw new AssertionError("金额不一致的重复订单应被拒绝");
+        } catch (CompletionException e) {
+            System.out.println("金额不一致：" + e.getCause().getMessage());
+        }
+
+        // 1000 笔压到快通道，500 笔压到慢通道：提交都是立即返回
+        long t0 = System.nanoTime();
+        List<CompletableFuture<PayResult>> futures = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            futures.add(payService.unifiedPayAsync("fast", "F" + i, 100 + i));
+        }
+        for (int i = 0; i < 500; i++) {
+            futures.add(payService.unifiedPayAsync("slow", "S" + i, 100 + i));
+        }
+        System.out.printf("提交 1500 笔耗时 %.1f ms（下单线程不等待第三方）%n", (System.nanoTime() - t0) / 1e6);
+
+        int success = 0, failed = 0, errors = 0;
+        for (CompletableFuture<PayResult> f : futures) {
+            try {
+                if (f.join().isSuccess()) {
+                    success++;
+                } else {
+                    failed++;
+                }
+            } catch (RuntimeException e) {
+                errors++;
+            }
+        }
+        System.out.printf("成功 %d，通道失败 %d，超时/拒绝 %d；快通道远程调用 %d 次%n",
+                success, failed, errors, fast.remoteCalls());
+        payService.printStats();
+        payService.shutdown();
+
+        // 原有适配器也可以接入异步服务
+        AsyncPayService real = new AsyncPayService(1000)
+                .register(new AdapterPayChannel("wechat", new WechatPayAdapter()), 2, 16, 0)
+                .register(new AdapterPayChannel("alipay", new AlipayPayAdapter()), 2, 16, 0);
+        System.out.println(real.unifiedPayAsync("wechat", "ORD101", 9990).join());
+        System.out.println(real.unifiedPayAsync("alipay", "ORD102", 19990).join());
+        real.shutdown();
+    }
+}
@@ -0,0 +1,190 @@
+package Action.Adapter;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 幂等支付层：挡在 UnifiedPayService 前面，抑制同一订单的重复支付
+ *
+ * - 并发重复：同一 orderId 的调用在途时，后来者等待同一个 future，不再打下游；
+ * - 迟到重复：支付成功后结果进入有界的 SegmentedLruCache（带 TTL），之后的重复调用直接返回；
+ * - 失败不缓存：下游失败后允许重试，但同一批并发重复共享这一次失败；
+ * - 同一订单金额不一致时直接拒绝，防止把两笔不同的支付当成重复请求吞掉。
+ * TTL 只是内存保护，过期后的重复调用仍需下游（支付渠道 / 订单库）按商户订单号做最终幂等。
+ */
+class IdempotentPayService implements UnifiedPayService {
+    private final UnifiedPayService delegate;
+    private final ConcurrentHashMap<String, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final SegmentedLruCache<String, Double> paid;
+    private final LongAdder downstreamCalls = new LongAdder();
+    private final LongAdder collapsed = new LongAdder();
+    private final LongAdder cachedHits = new LongAdder();
+
+    public IdempotentPayService(UnifiedPayService delegate, int capacity, long ttlMillis) {
+        this.delegate = delegate;
+        this.paid = new SegmentedLruCache<>(capacity, 16, ttlMillis);
+    }
+
+    @Override
+    public void unifiedPay(String orderId, double amount) {
+        if (alreadyPaid(orderId, amount)) {
+            return;
+        }
+        InFlight mine = new InFlight(amount);
+        InFlight existing = inFlight.putIfAbsent(orderId, mine);
+        if (existing != null) {
+            collapsed.increment();
+            checkAmount(orderId, existing.amount, amount);
+            try {
+                existing.future.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+            return;
+        }
+        try {
+            // 上一个在途调用可能刚好在 alreadyPaid 之后完成并移出 inFlight，这里再查一次
+            if (alreadyPaid(orderId, amount)) {
+                mine.future.complete(null);
+                return;
+            }
+            downstreamCalls.increment();
+            delegate.unifiedPay(orderId, amount);
+            paid.put(orderId, amount);
+            mine.future.complete(null);
+        } catch (RuntimeException e) {
+            mine.future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(orderId, mine);
+        }
+    }
+
+    private boolean alreadyPaid(String orderId, double amount) {
+        Double paidAmount = paid.get(orderId);
+        if (paidAmount == null) {
+            return false;
+        }
+        checkAmount(orderId, paidAmount, amount);
+        cachedHits.increment();
+        return true;
+    }
+
+    private static void checkAmount(String orderId, double expected, double actual) {
+        if (Double.compare(expected, actual) != 0) {
+            throw new IllegalStateException("订单[" + orderId + "]重复支付金额不一致：" + expected + " / " + actual);
+        }
+    }
+
+    public long downstreamCalls() {
+        return downstreamCalls.sum();
+    }
+
+    public void printStats() {
+        System.out.printf("下游调用 %d 次，并发合并 %d 次，缓存命中 %d 次，缓存条目 %d，淘汰 %d%n",
+                downstreamCalls.sum(), collapsed.sum(), cachedHits.sum(), paid.size(), paid.evictions());
+    }
+
+    private static final class InFlight {
+        final double amount;
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        InFlight(double amount) {
+            this.amount = amount;
+        }
+    }
+}
+
+// 计数通道：记录下游实际收到的支付次数
+class CountingPayAdapter implements UnifiedPayService {
+    final LongAdder calls = new LongAdder();
+    private final long latencyMillis;
+
+    CountingPayAdapter(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    @Override
+    public void unifiedPay(String orderId, double amount) {
+        calls.increment();
+        try {
+            Thread.sleep(latencyMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
+
+/**
+ * 重试风暴压测：2000 笔订单，每笔被 1~5 个客户端线程几乎同时提交，
+ * 风暴过后再有 10% 的订单迟到补发一次，对比有无幂等层时下游收到的支付次数。
+ */
+class RetryStormBenchmark {
+    private static final int ORDERS = 2000;
+    private static final int THREADS = 32;
+
+    public static void main(String[] args) throws InterruptedException {
+        CountingPayAdapter raw = new CountingPayAdapter(2);
+        long rawRequests = storm(raw);
+        System.out.printf("无幂等层：客户端请求 %d 次，下游支付 %d 次%n", rawRequests, raw.calls.sum());
+
+        CountingPayAdapter downstream = new CountingPayAdapter(2);
+        IdempotentPayService idempotent = new IdempotentPayService(downstream, 10_000, 60_000);
+        long requests = storm(idempotent);
+        System.out.printf("有幂等层：客户端请求 %d 次，下游支付 %d 次%n", requests, downstream.calls.sum());
+        idempotent.printStats();
+        if (downstream.calls.sum() != ORDERS) {
+            throw new AssertionError("每笔订单应只打一次下游，实际 " + downstream.calls.sum());
+        }
+
+        // 容量不足时只保留最近的订单，淘汰后的迟到重复会再打一次下游
+        CountingPayAdapter small = new CountingPayAdapter(0);
+        IdempotentPayService bounded = new IdempotentPayService(small, 256, 60_000);
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < ORDERS; i++) {
+                bounded.unifiedPay("ORD" + i, 9.9);
+            }
+        }
+        System.out.printf("容量 256 时顺序重放两遍：下游支付 %d 次%n", small.calls.sum());
+        bounded.printStats();
+    }
+
+    // 返回客户端发出的请求总数
+    private static long storm(UnifiedPayService service) throws InterruptedException {
+        int[] copies = new int[ORDERS];
+        long total = 0;
+        for (int i = 0; i < ORDERS; i++) {
+            copies[i] = 1 + ThreadLocalRandom.current().nextInt(5);
+            total += copies[i];
+        }
+        AtomicInteger cursor = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(THREADS);
+        long t0 = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            new Thread(() -> {
+                int ticket;
+                // 所有线程按同一顺序领取订单副本，同一订单的重复请求自然挤在一起
+                while ((ticket = cursor.getAndIncrement()) < ORDERS * 5) {
+                    int order = ticket / 5;
+                    if (ticket % 5 < copies[order]) {
+                        service.unifiedPay("ORD" + order, 9.9);
+                    }
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+        // 迟到的重试：在途调用早已结束，只能靠结果缓存挡住
+        for (int i = 0; i < ORDERS; i += 10) {
+            service.unifiedPay("ORD" + i, 9.9);
+            total++;
+        }
+        System.out.printf("  耗时 %.0f ms%n", (System.nanoTime() - t0) / 1e6);
+        return total;
+    }
+}
@@ -0,0 +1,389 @@
+package Action.Adapter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 自适应路由支付服务：调用方不再手动挑选微信 / 支付宝适配器
+ *
+ * - 每个通道维护延迟和错误率的 EWMA（指数加权移动平均），以及在途请求数；
+ * - 路由策略：随机两选一（P2C，比较 延迟 × (在途 + 1) 的得分）或最少在途请求；
+ * - 每个通道一个熔断器（见 限流熔断降级/限流和熔断.md）：错误率超过阈值后断开，
+ *   冷却时间过后放一个探测请求，成功则闭合（同时清零该通道的错误率 EWMA），失败则继续断开；
+ *   只有探测请求本身的结果会让熔断器离开半开，断开前就已发出的慢请求此时返回不算数；
+ * - 路由路径上只有原子变量的读和 CAS，不加锁。
+ * 已经发出的支付失败后不会自动换通道重试（可能重复扣款），只把异常抛给调用方。
+ */
+class RoutingPayService implements UnifiedPayService {
+    enum Strategy { POWER_OF_TWO_CHOICES, LEAST_OUTSTANDING }
+
+    private final ChannelState[] channels;
+    private final Strategy strategy;
+
+    public RoutingPayService(Map<String, UnifiedPayService> adapters, Strategy strategy,
+                             double errorThreshold, int minSamples, long openMillis) {
+        this.strategy = strategy;
+        this.channels = new ChannelState[adapters.size()];
+        int i = 0;
+        for (Map.Entry<String, UnifiedPayService> e : adapters.entrySet()) {
+            channels[i++] = new ChannelState(e.getKey(), e.getValue(),
+                    new CircuitBreaker(errorThreshold, minSamples, openMillis * 1_000_000));
+        }
+    }
+
+    @Override
+    public void unifiedPay(String orderId, double amount) {
+        Permit permit = choose();
+        if (permit == null) {
+            throw new IllegalStateException("所有支付通道均已熔断，订单[" + orderId + "]请稍后重试");
+        }
+        ChannelState channel = permit.channel;
+        channel.outstanding.incrementAndGet();
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            channel.adapter.unifiedPay(orderId, amount);
+            success = true;
+        } finally {
+            channel.outstanding.decrementAndGet();
+            channel.record(permit, System.nanoTime() - start, success);
+        }
+    }
+
+    // 选出本次调用的通道并占用调用资格，没有可用通道时返回 null
+    private Permit choose() {
+        if (strategy == Strategy.LEAST_OUTSTANDING) {
+            return leastOutstanding();
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int n = channels.length;
+        // 随机取两个不同的候选；候选不可用时退化为全量扫描
+        int a = random.nextInt(n);
+        int b = n == 1 ? a : (a + 1 + random.nextInt(n - 1)) % n;
+        ChannelState first = channels[a];
+        ChannelState second = channels[b];
+        boolean firstCallable = first.breaker.isCallable();
+        boolean secondCallable = a != b && second.breaker.isCallable();
+        Permit chosen = null;
+        if (firstCallable && secondCallable) {
+            chosen = first.score() <= second.score() ? first.acquire() : second.acquire();
+        } else if (firstCallable || secondCallable) {
+            chosen = (firstCallable ? first : second).acquire();
+        }
+        return chosen != null ? chosen : leastOutstanding();
+    }
+
+    // 抢半开探测资格失败的通道会变成不可调用，重新扫描即可跳过它
+    private Permit leastOutstanding() {
+        for (int attempt = 0; attempt < channels.length; attempt++) {
+            ChannelState best = null;
+            for (ChannelState channel : channels) {
+                if (channel.breaker.isCallable()
+                        && (best == null || channel.outstanding.get() < best.outstanding.get()
+                        || channel.outstanding.get() == best.outstanding.get() && channel.score() < best.score())) {
+                    best = channel;
+                }
+            }
+            if (best == null) {
+                return null;
+            }
+            Permit permit = best.acquire();
+            if (permit != null) {
+                return permit;
+            }
+        }
+        return null;
+    }
+
+    public void printStats() {
+        for (ChannelState c : channels) {
+            System.out.printf("通道 %-8s 调用 %5d 次，EWMA 延迟 %7.2f ms，EWMA 错误率 %.2f，熔断器 %s%n",
+                    c.name, c.calls.sum(), c.ewmaLatencyNanos() / 1e6, c.ewmaErrorRate(), c.breaker.state());
+        }
+    }
+
+    long calls(String name) {
+        ChannelState channel = channel(name);
+        return channel == null ? 0 : channel.calls.sum();
+    }
+
+    CircuitBreaker.State breakerState(String name) {
+        return channel(name).breaker.state();
+    }
+
+    private ChannelState channel(String name) {
+        for (ChannelState c : channels) {
+            if (c.name.equals(name)) {
+                return c;
+            }
+        }
+        return null;
+    }
+
+    // 一次调用占用的通道资格：闭合状态下复用通道的 callPermit，半开探测时才新建一个带探测令牌的
+    private static final class Permit {
+        final ChannelState channel;
+        final long token;
+
+        Permit(ChannelState channel, long token) {
+            this.channel = channel;
+            this.token = token;
+        }
+    }
+
+    private static final class ChannelState {
+        private static final double ALPHA = 0.2;
+
+        final String name;
+        final UnifiedPayService adapter;
+        final CircuitBreaker breaker;
+        final AtomicInteger outstanding = new AtomicInteger();
+        final LongAdder calls = new LongAdder();
+        // double 以 bit 形式存放在 AtomicLong 中，CAS 更新
+        final AtomicLong ewmaLatency = new AtomicLong(Double.doubleToRawLongBits(1_000_000));
+        final AtomicLong ewmaError = new AtomicLong(Double.doubleToRawLongBits(0));
+        final Permit callPermit = new Permit(this, CircuitBreaker.CALL);
+
+        ChannelState(String name, UnifiedPayService adapter, CircuitBreaker breaker) {
+            this.name = name;
+            this.adapter = adapter;
+            this.breaker = breaker;
+        }
+
+        // 半开状态下只有一个调用方能拿到探测资格，其余调用方视为不可用
+        Permit acquire() {
+            long token = breaker.tryAcquire();
+            if (token == CircuitBreaker.NO_PERMIT) {
+                return null;
+            }
+            return token == CircuitBreaker.CALL ? callPermit : new Permit(this, token);
+        }
+
+        double ewmaLatencyNanos() {
+            return Double.longBitsToDouble(ewmaLatency.get());
+        }
+
+        double ewmaErrorRate() {
+            return Double.longBitsToDouble(ewmaError.get());
+        }
+
+        // 得分越低越好：在途越多、越慢、错误率越高，得分越高
+        double score() {
+            return ewmaLatencyNanos() * (outstanding.get() + 1) / Math.max(0.05, 1 - ewmaErrorRate());
+        }
+
+        void record(Permit permit, long latencyNanos, boolean success) {
+            calls.increment();
+            update(ewmaLatency, latencyNanos);
+            double errorRate = update(ewmaError, success ? 0 : 1);
+            if (breaker.onResult(permit.token, success, errorRate)) {
+                // 探测成功、熔断器闭合：断开前积累的错误率不再代表通道现状，清零后重新统计，
+                // 否则闭合后的第一批请求会因为残留的高错误率立刻再次熔断，路由得分也会一直偏低
+                ewmaError.set(Double.doubleToRawLongBits(0));
+            }
+        }
+
+        private static double update(AtomicLong cell, double sample) {
+            long prev;
+            double next;
+            do {
+                prev = cell.get();
+                next = Double.longBitsToDouble(prev) * (1 - ALPHA) + sample * ALPHA;
+            } while (!cell.compareAndSet(prev, Double.doubleToRawLongBits(next)));
+            return next;
+        }
+    }
+}
+
+/**
+ * 无锁熔断器：CLOSED → OPEN → HALF_OPEN → CLOSED / OPEN
+ * 状态和断开截止时间各用一个原子变量，状态迁移全部通过 CAS 完成。
+ * tryAcquire 返回调用令牌：闭合时是 CALL，半开探测时是本次探测独有的编号；
+ * 调用结束后带着令牌回报结果，半开状态只认当前探测令牌的结果。
+ */
+class CircuitBreaker {
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    static final long NO_PERMIT = -1;
+    static final long CALL = 0;
+
+    private static final int CLOSED = 0;
+    private static final int OPEN = 1;
+    private static final int HALF_OPEN = 2;
+
+    private final double errorThreshold;
+    private final int minSamples;
+    private final long openNanos;
+    private final AtomicInteger state = new AtomicInteger(CLOSED);
+    private final AtomicLong openUntil = new AtomicLong();
+    private final AtomicInteger samples = new AtomicInteger();
+    // 当前探测的令牌，探测编号单调递增，旧探测的结果不会和新探测混淆
+    private final AtomicLong probe = new AtomicLong(NO_PERMIT);
+    private final AtomicLong probeSeq = new AtomicLong();
+
+    CircuitBreaker(double errorThreshold, int minSamples, long openNanos) {
+        this.errorThreshold = errorThreshold;
+        this.minSamples = minSamples;
+        this.openNanos = openNanos;
+    }
+
+    // 路由时的快速判断：闭合，或断开已到期（可以探测）
+    boolean isCallable() {
+        int s = state.get();
+        return s == CLOSED || s == OPEN && System.nanoTime() >= openUntil.get();
+    }
+
+    // 真正占用调用资格：断开到期时只有一个线程能 CAS 成半开去探测，拿到探测令牌；拿不到时返回 NO_PERMIT
+    long tryAcquire() {
+        int s = state.get();
+        if (s == CLOSED) {
+            return CALL;
+        }
+        if (s == OPEN && System.nanoTime() >= openUntil.get() && state.compareAndSet(OPEN, HALF_OPEN)) {
+            // 只有 CAS 成功的线程登记令牌；探测结果由它自己在调用结束后回报，登记一定发生在回报之前
+            long token = probeSeq.incrementAndGet();
+            probe.set(token);
+            return token;
+        }
+        return NO_PERMIT;
+    }
+
+    // 回报一次调用的结果；探测成功使熔断器闭合时返回 true
+    boolean onResult(long token, boolean success, double errorRate) {
+        if (token != CALL) {
+            if (state.get() != HALF_OPEN || !probe.compareAndSet(token, NO_PERMIT)) {
+                return false;
+            }
+            if (success) {
+                samples.set(0);
+                return state.compareAndSet(HALF_OPEN, CLOSED);
+            }
+            trip(HALF_OPEN);
+            return false;
+        }
+        // 闭合时发出的调用：断开 / 半开期间才返回的结果不影响状态
+        if (state.get() == CLOSED && samples.incrementAndGet() >= minSamples && errorRate > errorThreshold) {
+            trip(CLOSED);
+        }
+        return false;
+    }
+
+    State state() {
+        return State.values()[state.get()];
+    }
+
+    private void trip(int from) {
+        openUntil.set(System.nanoTime() + openNanos);
+        state.compareAndSet(from, OPEN);
+    }
+}
+
+// 模拟通道：延迟和是否失败可在运行时调整
+class SimulatedPayAdapter implements UnifiedPayService {
+    volatile long latencyMillis;
+    volatile boolean failing;
+
+    SimulatedPayAdapter(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    @Override
+    public void unifiedPay(String orderId, double amount) {
+        try {
+            Thread.sleep(latencyMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (failing) {
+            throw new IllegalStateException("通道异常：订单[" + orderId + "]");
+        }
+    }
+}
+
+// 测试类
+class RoutingPayTest {
+    public static void main(String[] args) throws InterruptedException {
+        SimulatedPayAdapter wechat = new SimulatedPayAdapter(2);
+        SimulatedPayAdapter alipay = new SimulatedPayAdapter(20);
+        SimulatedPayAdapter unionpay = new SimulatedPayAdapter(2);
+        Map<String, UnifiedPayService> adapters = new LinkedHashMap<>();
+        adapters.put("wechat", wechat);
+        adapters.put("alipay", alipay);
+        adapters.put("unionpay", unionpay);
+
+        for (RoutingPayService.Strategy strategy : RoutingPayService.Strategy.values()) {
+            System.out.println("=== " + strategy + " ===");
+            wechat.failing = false;
+            RoutingPayService router = new RoutingPayService(adapters, strategy, 0.5, 10, 200);
+
+            System.out.println("阶段 1：alipay 慢 10 倍，流量应偏向另外两个通道");
+            run(router, 8, 100);
+            router.printStats();
+            check(router.calls("alipay") < router.calls("wechat"), "慢通道不应分到最多流量");
+
+            System.out.println("阶段 2：wechat 持续报错，熔断器应断开");
+            wechat.failing = true;
+            long failures = run(router, 8, 100);
+            router.printStats();
+            System.out.println("调用方看到的失败次数：" + failures);
+
+            System.out.println("阶段 3：wechat 恢复，冷却后探测成功、熔断器闭合");
+            wechat.failing = false;
+            Thread.sleep(250);
+            run(router, 8, 100);
+            router.printStats();
+            check(router.breakerState("wechat") == CircuitBreaker.State.CLOSED, "探测成功后熔断器应保持闭合");
+        }
+
+        staleResultDuringHalfOpen();
+    }
+
+    // 半开期间返回的旧请求结果不能代替探测结果
+    private static void staleResultDuringHalfOpen() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker(0.5, 2, 20_000_000);
+        long slowCall = breaker.tryAcquire();
+        breaker.onResult(breaker.tryAcquire(), false, 1.0);
+        breaker.onResult(breaker.tryAcquire(), false, 1.0);
+        check(breaker.state() == CircuitBreaker.State.OPEN, "错误率超过阈值应断开");
+        Thread.sleep(30);
+        long probe = breaker.tryAcquire();
+        check(probe > 0 && breaker.tryAcquire() == CircuitBreaker.NO_PERMIT, "半开时只放一个探测请求");
+        check(!breaker.onResult(slowCall, true, 0) && breaker.state() == CircuitBreaker.State.HALF_OPEN,
+                "断开前发出的请求返回成功不应闭合熔断器");
+        check(breaker.onResult(probe, true, 0) && breaker.state() == CircuitBreaker.State.CLOSED, "探测成功应闭合");
+        check(!breaker.onResult(probe, false, 1.0) && breaker.state() == CircuitBreaker.State.CLOSED, "同一探测令牌只生效一次");
+        System.out.println("半开探测：只认探测令牌的结果，通过");
+    }
+
+    // threads 个线程各支付 perThread 次，返回失败次数
+    private static long run(RoutingPayService router, int threads, int perThread) throws InterruptedException {
+        LongAdder failures = new LongAdder();
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    try {
+                        router.unifiedPay("ORD" + id + "-" + i, 9.9);
+                    } catch (RuntimeException e) {
+                        failures.increment();
+                    }
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+        return failures.sum();
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package Action.Adapter;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 有界并发缓存：分段 LRU（SLRU）+ TTL
+ *
+ * - 按 key 的 hash 分成若干分片，每个分片一把锁，不同分片互不阻塞；
+ * - 每个分片分“试用区”和“保护区”：新写入的 key 先进试用区，再次命中才晋升保护区，
+ *   保护区满了把最久未用的降回试用区，分片满了先淘汰试用区最久未用的。只出现一次的 key（扫描、一次性重试）
+ *   不会把反复访问的热点挤出去；
+ * - 每个条目带过期时间，读到过期条目时顺手删除。
+ */
+public class SegmentedLruCache<K, V> {
+    private final Segment<K, V>[] segments;
+    private final int mask;
+    private final long ttlNanos;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @SuppressWarnings("unchecked")
+    public SegmentedLruCache(int capacity, int concurrency, long ttlMillis) {
+        int n = 1;
+        while (n < concurrency) {
+            n <<= 1;
+        }
+        this.segments = (Segment<K, V>[]) new Segment<?, ?>[n];
+        this.mask = n - 1;
+        this.ttlNanos = ttlMillis * 1_000_000;
+        int perSegment = Math.max(2, (capacity + n - 1) / n);
+        for (int i = 0; i < n; i++) {
+            segments[i] = new Segment<>(perSegment);
+        }
+    }
+
+    public V get(K key) {
+        V value = segmentFor(key).get(key, System.nanoTime());
+        if (value == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return value;
+    }
+
+    public void put(K key, V value) {
+        if (segmentFor(key).put(key, value, System.nanoTime() + ttlNanos)) {
+            evictions.increment();
+        }
+    }
+
+    public void remove(K key) {
+        segmentFor(key).remove(key);
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        int h = key.hashCode();
+        return segments[(h ^ (h >>> 16)) & mask];
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long expireAt;
+
+        Entry(V value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+    }
+
+    private static final class Segment<K, V> {
+        final int capacity;
+        final int protectedCapacity;
+        // accessOrder = true：迭代顺序从最久未用到最近使用
+        final LinkedHashMap<K, Entry<V>> probation = new LinkedHashMap<>(16, 0.75f, true);
+        final LinkedHashMap<K, Entry<V>> protectedArea = new LinkedHashMap<>(16, 0.75f, true);
+
+        // 保护区最多占 80%，试用区可以用满保护区空出来的部分
+        Segment(int capacity) {
+            this.capacity = capacity;
+            this.protectedCapacity = capacity * 4 / 5;
+        }
+
+        synchronized V get(K key, long now) {
+            Entry<V> entry = protectedArea.get(key);
+            if (entry != null) {
+                if (entry.expireAt - now <= 0) {
+                    protectedArea.remove(key);
+                    return null;
+                }
+                return entry.value;
+            }
+            entry = probation.remove(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expireAt - now <= 0) {
+                return null;
+            }
+            // 第二次命中：晋升保护区
+            protectedArea.put(key, entry);
+            if (protectedArea.size() > protectedCapacity) {
+                Iterator<Map.Entry<K, Entry<V>>> eldest = protectedArea.entrySet().iterator();
+                Map.Entry<K, Entry<V>> demoted = eldest.next();
+                eldest.remove();
+                // 总条目数不变，不需要淘汰
+                probation.put(demoted.getKey(), demoted.getValue());
+            }
+            return entry.value;
+        }
+
+        // 返回是否淘汰了条目
+        synchronized boolean put(K key, V value, long expireAt) {
+            Entry<V> entry = new Entry<>(value, expireAt);
+            if (protectedArea.containsKey(key)) {
+                protectedArea.put(key, entry);
+                return false;
+            }
+            probation.put(key, entry);
+            if (probation.size() + protectedArea.size() > capacity) {
+                // 优先淘汰试用区最久未用的；只剩刚写入的这一个时才动保护区
+                Iterator<K> eldest = (probation.size() > 1 ? probation : protectedArea).keySet().iterator();
+                eldest.next();
+                eldest.remove();
+                return true;
+            }
+            return false;
+        }
+
+        synchronized void remove(K key) {
+            if (protectedArea.remove(key) == null) {
+                probation.remove(key);
+            }
+        }
+
+        synchronized int size() {
+            return probation.size() + protectedArea.size();
+        }
+    }
+}
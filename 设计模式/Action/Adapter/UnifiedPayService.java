@@ -3,6 +3,27 @@ package Action.Adapter;
 // 1. 目标接口：电商系统统一支付接口
 interface UnifiedPayService {
     void unifiedPay(String orderId, double amount);
+
+    // 按分支付：默认换算成元后走 unifiedPay，适配器可以覆盖以避免经过 double
+    default void unifiedPayCents(String orderId, long amountCents) {
+        unifiedPay(orderId, amountCents / 100.0);
+    }
+}
+
+// 金额换算：第三方接口的金额单位都是元（两位小数的字符串），统一在这里从分换算
+final class PayAmounts {
+    private PayAmounts() {
+    }
+
+    static long toCents(double yuan) {
+        return Math.round(yuan * 100);
+    }
+
+    // 按分拼出两位小数，不经过 double，也不会出现科学计数法
+    static String yuan(long cents) {
+        long fraction = Math.abs(cents % 100);
+        return (cents < 0 && cents > -100 ? "-" : "") + cents / 100 + (fraction < 10 ? ".0" : ".") + fraction;
+    }
 }
 
 // 2. 适配者：微信支付第三方接口（接口不兼容）
@@ -25,8 +46,13 @@ class WechatPayAdapter implements UnifiedPayService {
 
     @Override
     public void unifiedPay(String orderId, double amount) {
+        unifiedPayCents(orderId, PayAmounts.toCents(amount));
+    }
+
+    @Override
+    public void unifiedPayCents(String orderId, long amountCents) {
         // 适配：参数转换、接口调用
-        wechatPay.wechatPay(orderId, String.valueOf(amount));
+        wechatPay.wechatPay(orderId, PayAmounts.yuan(amountCents));
     }
 }
 
@@ -36,8 +62,13 @@ class AlipayPayAdapter implements UnifiedPayService {
 
     @Override
     public void unifiedPay(String orderId, double amount) {
+        unifiedPayCents(orderId, PayAmounts.toCents(amount));
+    }
+
+    @Override
+    public void unifiedPayCents(String orderId, long amountCents) {
         // 适配：参数转换、接口调用
-        alipayPay.alipayPay(orderId, String.valueOf(amount));
+        alipayPay.alipayPay(orderId, PayAmounts.yuan(amountCents));
     }
 }
 
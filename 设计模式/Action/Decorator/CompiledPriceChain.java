@@ -0,0 +1,215 @@
+package Action.Decorator;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 编译后的促销链
+ *
+ * 把一层层嵌套的装饰器“拍平”成按执行顺序排好的规则数组（规则类型 + 两个 long 参数），
+ * 计算时在一个循环里直接用“分”做整数运算：没有虚方法调用链、没有装箱、没有日志、不分配对象。
+ * 装饰器栈依旧可以作为输入，通过 compile() 转换。
+ */
+class CompiledPriceChain implements OrderPriceCalculator {
+    // 批量计算时每块的元素个数：1024 个 long = 8KB，整块留在 L1 缓存里逐条规则扫过
+    private static final int BLOCK = 1024;
+    // 并行计算时单个任务至少处理的元素个数，太小则任务拆分开销大于收益
+    private static final int PARALLEL_THRESHOLD = 64 * BLOCK;
+
+    // 规则类型
+    static final int FULL_REDUCTION = 1;
+    static final int COUPON = 2;
+
+    private final int[] kinds;
+    // FULL_REDUCTION：满多少（分）；COUPON：减多少（分）
+    private final long[] arg0;
+    // FULL_REDUCTION：减多少（分）；COUPON：未使用
+    private final long[] arg1;
+
+    private CompiledPriceChain(int[] kinds, long[] arg0, long[] arg1) {
+        this.kinds = kinds;
+        this.arg0 = arg0;
+        this.arg1 = arg1;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // 编译装饰器栈：由内向外收集规则，执行顺序与原装饰器完全一致
+    public static CompiledPriceChain compile(OrderPriceCalculator calculator) {
+        Builder builder = new Builder();
+        collect(calculator, builder);
+        return builder.build();
+    }
+
+    private static void collect(OrderPriceCalculator calculator, Builder builder) {
+        if (calculator instanceof BasePriceCalculator) {
+            return;
+        }
+        if (calculator instanceof CompiledPriceChain) {
+            builder.append((CompiledPriceChain) calculator);
+            return;
+        }
+        if (calculator instanceof PriceDecorator) {
+            PriceDecorator decorator = (PriceDecorator) calculator;
+            collect(decorator.calculator, builder);
+            decorator.compileTo(builder);
+            return;
+        }
+        throw new IllegalArgumentException("无法编译的价格计算器：" + calculator.getClass().getName());
+    }
+
+    // 热路径：单位为分
+    public long calculateCents(long priceCents) {
+        long price = priceCents;
+        for (int i = 0; i < kinds.length; i++) {
+            switch (kinds[i]) {
+                case FULL_REDUCTION:
+                    if (price >= arg0[i]) {
+                        price -= arg1[i];
+                    }
+                    break;
+                case COUPON:
+                    price -= arg0[i];
+                    break;
+                default:
+                    throw new IllegalStateException("未知规则类型：" + kinds[i]);
+            }
+        }
+        return price;
+    }
+
+    // 批量计算：按块处理，块内“规则在外、元素在内”，内层循环无分支依赖，便于 JIT 展开/向量化
+    @Override
+    public void calculateBatch(long[] pricesInCents, long[] out) {
+        checkBatch(pricesInCents, out);
+        calculateRange(pricesInCents, out, 0, pricesInCents.length);
+    }
+
+    // 并行批量计算：fork-join 按区间切分，每个任务复用同一份只读规则数组，不产生逐元素对象
+    public void calculateBatchParallel(long[] pricesInCents, long[] out, ForkJoinPool pool) {
+        checkBatch(pricesInCents, out);
+        pool.invoke(new BatchTask(pricesInCents, out, 0, pricesInCents.length));
+    }
+
+    public void calculateBatchParallel(long[] pricesInCents, long[] out) {
+        calculateBatchParallel(pricesInCents, out, ForkJoinPool.commonPool());
+    }
+
+    private void calculateRange(long[] in, long[] out, int from, int to) {
+        for (int blockStart = from; blockStart < to; blockStart += BLOCK) {
+            int blockEnd = Math.min(blockStart + BLOCK, to);
+            if (in != out) {
+                System.arraycopy(in, blockStart, out, blockStart, blockEnd - blockStart);
+            }
+            for (int r = 0; r < kinds.length; r++) {
+                long a0 = arg0[r];
+                long a1 = arg1[r];
+                switch (kinds[r]) {
+                    case FULL_REDUCTION:
+                        for (int i = blockStart; i < blockEnd; i++) {
+                            long price = out[i];
+                            out[i] = price >= a0 ? price - a1 : price;
+                        }
+                        break;
+                    case COUPON:
+                        for (int i = blockStart; i < blockEnd; i++) {
+                            out[i] -= a0;
+                        }
+                        break;
+                    default:
+                        throw new IllegalStateException("未知规则类型：" + kinds[r]);
+                }
+            }
+        }
+    }
+
+    private static void checkBatch(long[] in, long[] out) {
+        if (out.length < in.length) {
+            throw new IllegalArgumentException("输出数组长度不足：" + out.length + " < " + in.length);
+        }
+    }
+
+    private final class BatchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final long[] in;
+        private final long[] out;
+        private final int from;
+        private final int to;
+
+        BatchTask(long[] in, long[] out, int from, int to) {
+            this.in = in;
+            this.out = out;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                calculateRange(in, out, from, to);
+                return;
+            }
+            // 按块边界对半切分
+            int mid = from + ((to - from) / 2 / BLOCK) * BLOCK;
+            invokeAll(new BatchTask(in, out, from, mid), new BatchTask(in, out, mid, to));
+        }
+    }
+
+    // 兼容原接口：元 → 分 → 元
+    @Override
+    public double calculate(double originalPrice) {
+        return calculateCents(toCents(originalPrice)) / 100.0;
+    }
+
+    public int size() {
+        return kinds.length;
+    }
+
+    static long toCents(double yuan) {
+        return Math.round(yuan * 100);
+    }
+
+    // 规则构建器：按添加顺序执行
+    static class Builder {
+        private int[] kinds = new int[8];
+        private long[] arg0 = new long[8];
+        private long[] arg1 = new long[8];
+        private int size;
+
+        public Builder fullReduction(long fullCents, long reductionCents) {
+            return add(FULL_REDUCTION, fullCents, reductionCents);
+        }
+
+        public Builder coupon(long couponCents) {
+            return add(COUPON, couponCents, 0);
+        }
+
+        Builder append(CompiledPriceChain chain) {
+            for (int i = 0; i < chain.kinds.length; i++) {
+                add(chain.kinds[i], chain.arg0[i], chain.arg1[i]);
+            }
+            return this;
+        }
+
+        private Builder add(int kind, long a0, long a1) {
+            if (size == kinds.length) {
+                kinds = Arrays.copyOf(kinds, size * 2);
+                arg0 = Arrays.copyOf(arg0, size * 2);
+                arg1 = Arrays.copyOf(arg1, size * 2);
+            }
+            kinds[size] = kind;
+            arg0[size] = a0;
+            arg1[size] = a1;
+            size++;
+            return this;
+        }
+
+        public CompiledPriceChain build() {
+            return new CompiledPriceChain(Arrays.copyOf(kinds, size), Arrays.copyOf(arg0, size), Arrays.copyOf(arg1, size));
+        }
+    }
+}
@@ -3,6 +3,12 @@ package Action.Decorator;
 // 1. 抽象组件：订单价格计算器
 interface OrderPriceCalculator {
     double calculate(double originalPrice);
+
+    // 批量计算（单位：分）：先编译成扁平规则链，再整批计算，out 与 pricesInCents 可以是同一个数组；
+    // 装饰器会缓存编译结果，其他实现每次调用都重新编译
+    default void calculateBatch(long[] pricesInCents, long[] out) {
+        CompiledPriceChain.compile(this).calculateBatch(pricesInCents, out);
+    }
 }
 
 // 2. 具体组件：基础价格计算器（仅计算商品总价）
@@ -15,11 +21,27 @@ class BasePriceCalculator implements OrderPriceCalculator {
 
 // 3. 抽象装饰器：价格装饰器
 abstract class PriceDecorator implements OrderPriceCalculator {
-    protected OrderPriceCalculator calculator;
+    protected final OrderPriceCalculator calculator;
+    // 本装饰器（连同内层）编译出的促销链，第一次批量计算时生成；装饰器构造后不再变化，缓存无需失效。
+    // 并发首次调用可能各编译一次，结果相同，谁写入都一样
+    private volatile CompiledPriceChain compiled;
 
     public PriceDecorator(OrderPriceCalculator calculator) {
         this.calculator = calculator;
     }
+
+    // 把本层促销规则写入编译后的促销链（单位：分）
+    abstract void compileTo(CompiledPriceChain.Builder builder);
+
+    @Override
+    public void calculateBatch(long[] pricesInCents, long[] out) {
+        CompiledPriceChain chain = compiled;
+        if (chain == null) {
+            chain = CompiledPriceChain.compile(this);
+            compiled = chain;
+        }
+        chain.calculateBatch(pricesInCents, out);
+    }
 }
 
 // 4. 具体装饰器：满减装饰器
@@ -43,6 +65,11 @@ class FullReductionDecorator extends PriceDecorator {
         }
         return price;
     }
+
+    @Override
+    void compileTo(CompiledPriceChain.Builder builder) {
+        builder.fullReduction(CompiledPriceChain.toCents(fullAmount), CompiledPriceChain.toCents(reductionAmount));
+    }
 }
 
 // 4. 具体装饰器：优惠券装饰器
@@ -62,6 +89,11 @@ class CouponDecorator extends PriceDecorator {
         System.out.println("优惠券：减" + couponAmount);
         return price;
     }
+
+    @Override
+    void compileTo(CompiledPriceChain.Builder builder) {
+        builder.coupon(CompiledPriceChain.toCents(couponAmount));
+    }
 }
 
 // 测试类
@@ -80,5 +112,21 @@ class DecoratorTest {
 
         double finalPrice = calculator.calculate(originalPrice);
         System.out.println("最终价格：" + finalPrice);
+
+        // 编译成扁平规则数组，按“分”计算，结果与装饰器链一致
+        CompiledPriceChain compiled = CompiledPriceChain.compile(calculator);
+        System.out.println("编译后最终价格：" + compiled.calculate(originalPrice)
+                + "（" + compiled.calculateCents(30000) + " 分）");
+
+        // 批量计算走装饰器上缓存的编译链，多次调用结果一致
+        long[] prices = {30000, 29999, 10000};
+        long[] first = new long[prices.length];
+        long[] second = new long[prices.length];
+        calculator.calculateBatch(prices, first);
+        calculator.calculateBatch(prices, second);
+        System.out.println("批量计算（分）：" + java.util.Arrays.toString(first));
+        if (!java.util.Arrays.equals(first, second) || first[0] != 23000 || first[1] != 27999) {
+            throw new AssertionError("批量计算结果不正确：" + java.util.Arrays.toString(first));
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,132 @@
+package Action.Decorator;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+
+/**
+ * 促销链压测：装饰器链 vs 编译后的扁平规则数组，链深度 1 / 5 / 20
+ *
+ * 装饰器在热路径上会打印日志，压测期间把 System.out 换成空输出流，
+ * 仍然保留字符串拼接的开销（这正是线上真实的开销），只是不真正写终端。
+ * 最后对 100 万个购物车金额做整批重算，对比逐个计算、批量计算和 fork-join 并行批量计算。
+ */
+class PriceChainBenchmark {
+    private static final int ITERATIONS = 2_000_000;
+
+    public static void main(String[] args) {
+        PrintStream console = System.out;
+        PrintStream discard = new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        });
+
+        int[] depths = {1, 5, 20};
+        for (int depth : depths) {
+            OrderPriceCalculator decorated = buildChain(depth);
+            CompiledPriceChain compiled = CompiledPriceChain.compile(decorated);
+
+            System.setOut(discard);
+            long decoratedNanos;
+            double sink = 0;
+            try {
+                // 预热
+                for (int i = 0; i < ITERATIONS / 10; i++) {
+                    sink += decorated.calculate(100 + (i & 1023));
+                }
+                long start = System.nanoTime();
+                for (int i = 0; i < ITERATIONS; i++) {
+                    sink += decorated.calculate(100 + (i & 1023));
+                }
+                decoratedNanos = System.nanoTime() - start;
+            } finally {
+                System.setOut(console);
+            }
+
+            long centsSink = 0;
+            for (int i = 0; i < ITERATIONS / 10; i++) {
+                centsSink += compiled.calculateCents(10_000 + (i & 1023) * 100L);
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                centsSink += compiled.calculateCents(10_000 + (i & 1023) * 100L);
+            }
+            long compiledNanos = System.nanoTime() - start;
+
+            System.out.printf("深度=%-3d 装饰器链: %8.1f ns/op   编译链: %6.1f ns/op   (sink=%.0f/%d)%n",
+                    depth, (double) decoratedNanos / ITERATIONS, (double) compiledNanos / ITERATIONS, sink, centsSink);
+        }
+
+        benchmarkRepricing();
+        benchmarkSmallBatches();
+    }
+
+    // 小批量：每次 16 个价格，直接调用装饰器链的 calculateBatch（编译结果缓存在装饰器上）
+    private static void benchmarkSmallBatches() {
+        OrderPriceCalculator decorated = buildChain(5);
+        long[] prices = new long[16];
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = 10_000 + i * 1_000L;
+        }
+        long[] out = new long[prices.length];
+        long sink = 0;
+        int calls = 1_000_000;
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < calls; i++) {
+                decorated.calculateBatch(prices, out);
+                sink += out[i & 15];
+            }
+            if (round == 2) {
+                System.out.printf("小批量（16 个）经装饰器入口: %.1f ns/次 (sink=%d)%n",
+                        (double) (System.nanoTime() - start) / calls, sink);
+            }
+        }
+    }
+
+    // 全量重算：100 万个购物车，深度 5 的促销链
+    private static void benchmarkRepricing() {
+        int carts = 1_000_000;
+        CompiledPriceChain chain = CompiledPriceChain.compile(buildChain(5));
+        long[] prices = new long[carts];
+        for (int i = 0; i < carts; i++) {
+            prices[i] = 1_000 + (i * 7919L) % 100_000;
+        }
+        long[] single = new long[carts];
+        long[] batch = new long[carts];
+        long[] parallel = new long[carts];
+
+        for (int round = 0; round < 5; round++) {
+            long t0 = System.nanoTime();
+            for (int i = 0; i < carts; i++) {
+                single[i] = chain.calculateCents(prices[i]);
+            }
+            long t1 = System.nanoTime();
+            chain.calculateBatch(prices, batch);
+            long t2 = System.nanoTime();
+            chain.calculateBatchParallel(prices, parallel);
+            long t3 = System.nanoTime();
+            if (round == 4) {
+                System.out.printf("全量重算 %,d 个购物车: 逐个 %.1f ms   批量 %.1f ms   并行批量 %.1f ms   结果一致: %b%n",
+                        carts, (t1 - t0) / 1e6, (t2 - t1) / 1e6, (t3 - t2) / 1e6,
+                        Arrays.equals(single, batch) && Arrays.equals(single, parallel));
+            }
+        }
+    }
+
+    // 交替叠加满减和优惠券，构造指定深度的装饰器链
+    private static OrderPriceCalculator buildChain(int depth) {
+        OrderPriceCalculator calculator = new BasePriceCalculator();
+        for (int i = 0; i < depth; i++) {
+            calculator = (i & 1) == 0
+                    ? new FullReductionDecorator(calculator, 300, 50)
+                    : new CouponDecorator(calculator, 1);
+        }
+        return calculator;
+    }
+}
@@ -1,7 +1,13 @@
 package Action.Facade;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 // 1. 子系统类：购物车服务
 class CartService {
@@ -11,19 +17,96 @@ class CartService {
     }
 }
 
-// 1. 子系统类：商品服务
+// 1. 子系统类：商品服务（单价走 近端缓存 → 二级缓存 → 商品目录）
 class ProductService {
+    // 默认缓存的后台刷新线程池：刷新要查二级缓存和商品目录（阻塞 I/O），不占用公共 ForkJoinPool；
+    // 刷新只针对热点 key，两个守护线程足够
+    private static final ExecutorService SHARED_REFRESH_EXECUTOR = Executors.newFixedThreadPool(2, r -> {
+        Thread t = new Thread(r, "price-refresh");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final NearCache<String, Double> priceCache;
+
+    // 近端缓存 30 秒后提前刷新、60 秒过期；二级缓存 10 秒过期，短于提前刷新时间，刷新时一定拿到商品目录的新价格
+    public ProductService() {
+        this(new NearCache<>(10_000, new TieredPriceLoader(new LocalPriceStore(0, 10_000), new ProductCatalog(0)),
+                SHARED_REFRESH_EXECUTOR, 30_000, 60_000));
+    }
+
+    public ProductService(NearCache<String, Double> priceCache) {
+        this.priceCache = priceCache;
+    }
+
     public double getTotalPrice(List<String> items) {
         System.out.println("商品：计算商品总价");
-        return 200;
+        double total = 0;
+        for (String item : items) {
+            total += priceCache.get(item);
+        }
+        return total;
     }
 }
 
-// 1. 子系统类：库存服务
+// 库存锁：一次结算预扣减得到的令牌，结算成功后确认，失败时回滚
+class StockLock {
+    final List<Long> tokens;
+
+    StockLock(List<Long> tokens) {
+        this.tokens = tokens;
+    }
+}
+
+// 1. 子系统类：库存服务（基于分段库存引擎做预扣减）
 class StockService {
-    public boolean lockStock(List<String> items) {
+    // 默认库存里预置演示用的商品
+    private static final long DEMO_STOCK = 10_000;
+
+    private final StripedInventory inventory;
+
+    public StockService() {
+        this(new StripedInventory(1024));
+        inventory.initStock("商品A", DEMO_STOCK);
+        inventory.initStock("商品B", DEMO_STOCK);
+    }
+
+    public StockService(StripedInventory inventory) {
+        this.inventory = inventory;
+    }
+
+    // 预扣减所有商品，任一商品库存不足时全部回滚并返回 null
+    public StockLock lockStock(List<String> items) {
+        List<Long> tokens = new ArrayList<>(items.size());
+        for (String item : items) {
+            long token = inventory.reserve(item, 1);
+            if (token == StripedInventory.NO_TOKEN) {
+                // 任一商品库存不足：回滚已预扣减的商品
+                for (long reserved : tokens) {
+                    inventory.rollback(reserved);
+                }
+                System.out.println("库存：商品[" + item + "]库存不足，锁定失败");
+                return null;
+            }
+            tokens.add(token);
+        }
         System.out.println("库存：锁定商品库存");
-        return true;
+        return new StockLock(tokens);
+    }
+
+    // 结算成功：预扣减转为真实扣减
+    public void confirmStock(StockLock lock) {
+        for (long token : lock.tokens) {
+            inventory.confirm(token);
+        }
+    }
+
+    // 结算失败：归还预扣减的库存
+    public void unlockStock(StockLock lock) {
+        for (long token : lock.tokens) {
+            inventory.rollback(token);
+        }
+        System.out.println("库存：释放商品库存");
     }
 }
 
@@ -37,10 +120,46 @@ class LogisticsService {
 
 // 2. 外观类：订单结算统一入口
 class OrderSettleFacade {
-    private CartService cartService = new CartService();
-    private ProductService productService = new ProductService();
-    private StockService stockService = new StockService();
-    private LogisticsService logisticsService = new LogisticsService();
+    // 未指定线程池的外观类共用这一个（守护线程，随进程退出）
+    private static final ExecutorService SHARED_SETTLE_EXECUTOR = Executors.newFixedThreadPool(8, r -> {
+        Thread t = new Thread(r, "order-settle");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private CartService cartService;
+    private ProductService productService;
+    private StockService stockService;
+    private LogisticsService logisticsService;
+    // 并行结算：子系统调用线程池（由调用方管理生命周期）、单次调用超时、运费降级值
+    private final ExecutorService settleExecutor;
+    private final long callTimeoutMillis;
+    private final double fallbackFreight;
+
+    public OrderSettleFacade() {
+        this(new StockService());
+    }
+
+    public OrderSettleFacade(StockService stockService) {
+        this(stockService, 500, 10);
+    }
+
+    public OrderSettleFacade(StockService stockService, long callTimeoutMillis, double fallbackFreight) {
+        this(new CartService(), new ProductService(), stockService, new LogisticsService(),
+                SHARED_SETTLE_EXECUTOR, callTimeoutMillis, fallbackFreight);
+    }
+
+    public OrderSettleFacade(CartService cartService, ProductService productService, StockService stockService,
+                             LogisticsService logisticsService, ExecutorService settleExecutor,
+                             long callTimeoutMillis, double fallbackFreight) {
+        this.cartService = cartService;
+        this.productService = productService;
+        this.stockService = stockService;
+        this.logisticsService = logisticsService;
+        this.settleExecutor = settleExecutor;
+        this.callTimeoutMillis = callTimeoutMillis;
+        this.fallbackFreight = fallbackFreight;
+    }
 
     // 高层统一接口：一键结算
     public void settleOrder(String userId, String address) {
@@ -48,18 +167,137 @@ class OrderSettleFacade {
         // 封装子系统调用顺序
         List<String> items = cartService.getSelectedItems(userId);
         double productPrice = productService.getTotalPrice(items);
-        stockService.lockStock(items);
-        double freight = logisticsService.calculateFreight(address);
+        StockLock lock = stockService.lockStock(items);
+        if (lock == null) {
+            System.out.println("=== 订单结算失败：库存不足 ===");
+            return;
+        }
+        double freight;
+        try {
+            freight = logisticsService.calculateFreight(address);
+        } catch (RuntimeException e) {
+            stockService.unlockStock(lock);
+            throw e;
+        }
+        stockService.confirmStock(lock);
         double totalPrice = productPrice + freight;
         System.out.println("=== 订单结算完成，总价：" + totalPrice + " ===");
     }
+
+    // 并行结算：按依赖关系扇出子系统调用，总耗时取各分支最大值而不是求和
+    //   购物车 ──┬── 商品总价 ──┐
+    //            └── 锁定库存 ──┼── 汇总
+    //   运费（只依赖地址）──────┘
+    // 每个调用的超时从该调用真正发起时开始计：商品、库存调用在购物车返回后才发起，超时不包含等购物车的时间
+    public CompletableFuture<Double> settleOrderAsync(String userId, String address) {
+        CompletableFuture<List<String>> itemsCall =
+                CompletableFuture.supplyAsync(() -> cartService.getSelectedItems(userId), settleExecutor);
+        CompletableFuture<List<String>> itemsFuture = withTimeout(itemsCall);
+        CompletableFuture<Double> priceCall = itemsCall.thenApplyAsync(productService::getTotalPrice, settleExecutor);
+        CompletableFuture<Double> priceFuture = itemsFuture.thenCompose(items -> withTimeout(priceCall));
+        CompletableFuture<StockLock> stockCall = itemsCall.thenApplyAsync(stockService::lockStock, settleExecutor);
+        CompletableFuture<StockLock> stockFuture = itemsFuture.thenCompose(items -> withTimeout(stockCall));
+        // 运费非核心链路：超时或失败时降级为默认运费，不影响结算
+        CompletableFuture<Double> freightFuture = withTimeout(
+                CompletableFuture.supplyAsync(() -> logisticsService.calculateFreight(address), settleExecutor))
+                .exceptionally(e -> {
+                    System.out.println("物流：运费计算失败，降级为默认运费 " + fallbackFreight);
+                    return fallbackFreight;
+                });
+
+        return CompletableFuture.allOf(priceFuture, stockFuture, freightFuture)
+                .handle((ignored, error) -> {
+                    if (error == null && stockFuture.join() != null) {
+                        stockService.confirmStock(stockFuture.join());
+                        return priceFuture.join() + freightFuture.join();
+                    }
+                    // 部分失败：库存调用一旦（哪怕超时之后）锁定成功，就要回滚预扣减，避免库存泄漏
+                    stockCall.thenAccept(lock -> {
+                        if (lock != null) {
+                            stockService.unlockStock(lock);
+                        }
+                    });
+                    if (error != null) {
+                        throw error instanceof CompletionException
+                                ? (CompletionException) error : new CompletionException(error);
+                    }
+                    throw new IllegalStateException("库存不足");
+                });
+    }
+
+    public void settleOrderParallel(String userId, String address) {
+        System.out.println("=== 订单并行结算开始 ===");
+        try {
+            double totalPrice = settleOrderAsync(userId, address).join();
+            System.out.println("=== 订单并行结算完成，总价：" + totalPrice + " ===");
+        } catch (CompletionException e) {
+            System.out.println("=== 订单并行结算失败：" + e.getCause() + " ===");
+        }
+    }
+
+    // 单次子系统调用超时：调用发起时再套上，在副本上计时，原调用不被取消，便于事后补偿
+    private <T> CompletableFuture<T> withTimeout(CompletableFuture<T> call) {
+        return call.copy().orTimeout(callTimeoutMillis, TimeUnit.MILLISECONDS);
+    }
 }
 
 // 测试类
 class FacadeTest {
     public static void main(String[] args) {
         // 客户端仅需调用外观类，无需关心子系统细节
-        OrderSettleFacade facade = new OrderSettleFacade();
+        StripedInventory inventory = new StripedInventory(16);
+        inventory.initStock("商品A", 100);
+        inventory.initStock("商品B", 100);
+        OrderSettleFacade facade = new OrderSettleFacade(new StockService(inventory));
         facade.settleOrder("U001", "北京市朝阳区");
+
+        System.out.println();
+        facade.settleOrderParallel("U001", "北京市朝阳区");
+        System.out.println("剩余库存：商品A=" + inventory.available("商品A") + "，商品B=" + inventory.available("商品B"));
+
+        // 默认构造的外观类使用预置库存，可以直接结算
+        System.out.println();
+        new OrderSettleFacade().settleOrder("U002", "上海市浦东新区");
+
+        // 库存不足：锁定失败，已预扣减的商品被回滚
+        StripedInventory scarce = new StripedInventory(16);
+        scarce.initStock("商品A", 1);
+        OrderSettleFacade scarceFacade = new OrderSettleFacade(new StockService(scarce));
+        System.out.println();
+        scarceFacade.settleOrder("U003", "广州市天河区");
+        if (scarce.available("商品A") != 1) {
+            throw new AssertionError("锁定失败时应回滚已预扣减的库存");
+        }
+
+        // 购物车 300ms + 商品 300ms，单次超时 500ms：各调用都没超时，结算应成功
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CartService slowCart = new CartService() {
+            @Override
+            public List<String> getSelectedItems(String userId) {
+                sleep(300);
+                return super.getSelectedItems(userId);
+            }
+        };
+        ProductService slowProduct = new ProductService() {
+            @Override
+            public double getTotalPrice(List<String> items) {
+                sleep(300);
+                return super.getTotalPrice(items);
+            }
+        };
+        OrderSettleFacade slowFacade = new OrderSettleFacade(slowCart, slowProduct, new StockService(),
+                new LogisticsService(), executor, 500, 10);
+        System.out.println();
+        double total = slowFacade.settleOrderAsync("U004", "深圳市南山区").join();
+        System.out.println("慢调用结算总价：" + total);
+        executor.shutdown();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 }
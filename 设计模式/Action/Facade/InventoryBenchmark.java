@@ -0,0 +1,109 @@
+package Action.Facade;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 库存扣减压测：分段 CAS 库存引擎 vs synchronized + HashMap 基线
+ *
+ * 所有线程反复对同一个热点 SKU 做“扣减 → 归还”（以及带令牌的“预扣减 → 回滚”），统计 1 / 8 / 64 线程下的吞吐（ops/ms）。
+ * 先预热一轮再计时，避免把 JIT 编译时间算进结果。
+ */
+class InventoryBenchmark {
+    private static final String HOT_SKU = "SKU-HOT";
+    private static final long DURATION_MS = 1000;
+
+    // 基线：全局锁保护的库存 Map
+    static class SynchronizedInventory {
+        private final Map<String, Long> stock = new HashMap<>();
+
+        public synchronized void initStock(String skuId, long total) {
+            stock.put(skuId, total);
+        }
+
+        public synchronized boolean tryDeduct(String skuId, int quantity) {
+            Long current = stock.get(skuId);
+            if (current == null || current < quantity) {
+                return false;
+            }
+            stock.put(skuId, current - quantity);
+            return true;
+        }
+
+        public synchronized void restore(String skuId, int quantity) {
+            stock.merge(skuId, (long) quantity, Long::sum);
+        }
+    }
+
+    interface Operation {
+        void run();
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int[] threadCounts = {1, 8, 64};
+        for (int threads : threadCounts) {
+            StripedInventory striped = new StripedInventory(16);
+            striped.initStock(HOT_SKU, 1_000_000);
+            SynchronizedInventory baseline = new SynchronizedInventory();
+            baseline.initStock(HOT_SKU, 1_000_000);
+
+            Operation stripedOp = () -> {
+                if (striped.tryDeduct(HOT_SKU, 1)) {
+                    striped.release(HOT_SKU, 1);
+                }
+            };
+            Operation reserveOp = () -> {
+                long token = striped.reserve(HOT_SKU, 1);
+                if (token != StripedInventory.NO_TOKEN) {
+                    striped.rollback(token);
+                }
+            };
+            Operation baselineOp = () -> {
+                if (baseline.tryDeduct(HOT_SKU, 1)) {
+                    baseline.restore(HOT_SKU, 1);
+                }
+            };
+
+            // 预热
+            measure(threads, stripedOp, DURATION_MS / 2);
+            measure(threads, reserveOp, DURATION_MS / 2);
+            measure(threads, baselineOp, DURATION_MS / 2);
+
+            long stripedOps = measure(threads, stripedOp, DURATION_MS);
+            long reserveOps = measure(threads, reserveOp, DURATION_MS);
+            long baselineOps = measure(threads, baselineOp, DURATION_MS);
+            System.out.printf("线程数=%-3d 分段CAS: %,10d ops/ms   令牌预扣减: %,10d ops/ms   synchronized基线: %,10d ops/ms   剩余库存: %d / %d%n",
+                    threads, stripedOps / DURATION_MS, reserveOps / DURATION_MS, baselineOps / DURATION_MS,
+                    striped.available(HOT_SKU), baseline.stock.get(HOT_SKU));
+        }
+    }
+
+    private static long measure(int threads, Operation op, long durationMs) throws InterruptedException {
+        LongAdder counter = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        long deadline = System.nanoTime() + durationMs * 1_000_000L;
+        for (int i = 0; i < threads; i++) {
+            new Thread(() -> {
+                try {
+                    start.await();
+                    long ops = 0;
+                    while (System.nanoTime() < deadline) {
+                        op.run();
+                        ops++;
+                    }
+                    counter.add(ops);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        start.countDown();
+        done.await();
+        return counter.sum();
+    }
+}
@@ -0,0 +1,295 @@
+package Action.Facade;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * 近端缓存：W-TinyLFU 准入 + 容量淘汰 + 热点提前刷新 + 回源合并
+ * （原理见 缓存相关(Cache)/Caffeine的底层原理.md，这里是按同样思路写的精简版）
+ *
+ * - 数据放在 ConcurrentHashMap 里，读不加锁；
+ * - 淘汰策略：1% 窗口 LRU + 99% 主区 SLRU（试用区 / 保护区），窗口挤出的候选要和主区试用区的队尾比访问频率，
+ *   频率更高才准入，否则直接丢弃，扫描型的一次性访问挤不掉热点；
+ * - 访问频率用 4 位计数的 Count-Min Sketch 估算，计数总量达到 10 倍容量时全部减半（老化）；
+ * - 策略结构用一把锁保护，读命中时只 tryLock，抢不到就放弃本次重排（和 Caffeine 丢弃读缓冲一样，不影响正确性）；
+ * - 写入超过 refreshAfter 的热点 key 被读到时，后台异步刷新，读者直接拿旧值；超过 expireAfter 则同步重新加载；
+ * - 同一个 key 同时未命中时只回源一次，其余线程等待同一个 future。
+ */
+class NearCache<K, V> {
+    // 频率估计达到该值才算热点，才值得提前刷新
+    private static final int HOT_FREQUENCY = 4;
+
+    private final ConcurrentHashMap<K, Node<V>> data = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+    private final Function<K, V> loader;
+    private final Executor refresher;
+    private final long refreshAfterNanos;
+    private final long expireAfterNanos;
+
+    private final ReentrantLock policyLock = new ReentrantLock();
+    private final FrequencySketch sketch;
+    // accessOrder = true：迭代顺序从最久未用到最近使用
+    private final LinkedHashMap<K, Boolean> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Boolean> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Boolean> protectedArea = new LinkedHashMap<>(16, 0.75f, true);
+    private final int windowCapacity;
+    private final int mainCapacity;
+    private final int protectedCapacity;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+
+    public NearCache(int capacity, Function<K, V> loader, Executor refresher, long refreshAfterMillis, long expireAfterMillis) {
+        if (capacity < 2 || refreshAfterMillis > expireAfterMillis) {
+            throw new IllegalArgumentException("容量至少为 2，refreshAfter 不能大于 expireAfter");
+        }
+        this.loader = loader;
+        this.refresher = refresher;
+        this.refreshAfterNanos = refreshAfterMillis * 1_000_000;
+        this.expireAfterNanos = expireAfterMillis * 1_000_000;
+        this.windowCapacity = Math.max(1, capacity / 100);
+        this.mainCapacity = capacity - windowCapacity;
+        this.protectedCapacity = mainCapacity * 4 / 5;
+        this.sketch = new FrequencySketch(capacity);
+    }
+
+    public V get(K key) {
+        long now = System.nanoTime();
+        Node<V> node = data.get(key);
+        if (node != null && now - node.loadedAt < expireAfterNanos) {
+            hits.increment();
+            if (policyLock.tryLock()) {
+                try {
+                    onAccess(key);
+                } finally {
+                    policyLock.unlock();
+                }
+            }
+            if (now - node.loadedAt >= refreshAfterNanos && sketch.frequency(key) >= HOT_FREQUENCY) {
+                refreshAsync(key, node);
+            }
+            return node.value;
+        }
+        misses.increment();
+        return load(key);
+    }
+
+    private V load(K key) {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> existing = loading.putIfAbsent(key, mine);
+        if (existing != null) {
+            coalesced.increment();
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+        try {
+            loads.increment();
+            V value = loader.apply(key);
+            data.put(key, new Node<>(value, System.nanoTime()));
+            policyLock.lock();
+            try {
+                onInsert(key);
+            } finally {
+                policyLock.unlock();
+            }
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, mine);
+        }
+    }
+
+    // 每个 node 同时最多一个刷新任务；刷新失败时保留旧值，等下次读到再试
+    private void refreshAsync(K key, Node<V> node) {
+        if (!node.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        refresher.execute(() -> {
+            try {
+                V value = loader.apply(key);
+                if (data.replace(key, node, new Node<>(value, System.nanoTime()))) {
+                    refreshes.increment();
+                }
+            } catch (RuntimeException e) {
+                node.refreshing.set(false);
+            }
+        });
+    }
+
+    // 以下方法都在 policyLock 内调用
+    private void onAccess(K key) {
+        sketch.increment(key);
+        if (window.get(key) != null || protectedArea.get(key) != null) {
+            return;
+        }
+        if (probation.remove(key) != null) {
+            // 试用区再次命中：晋升保护区，保护区溢出的降回试用区
+            protectedArea.put(key, Boolean.TRUE);
+            if (protectedArea.size() > protectedCapacity) {
+                K demoted = eldest(protectedArea);
+                protectedArea.remove(demoted);
+                probation.put(demoted, Boolean.TRUE);
+            }
+        }
+    }
+
+    private void onInsert(K key) {
+        if (window.containsKey(key) || probation.containsKey(key) || protectedArea.containsKey(key)) {
+            // 过期后重新加载的 key 仍在策略结构里，按一次访问处理
+            onAccess(key);
+            return;
+        }
+        sketch.increment(key);
+        window.put(key, Boolean.TRUE);
+        if (window.size() <= windowCapacity) {
+            return;
+        }
+        K candidate = eldest(window);
+        window.remove(candidate);
+        if (probation.size() + protectedArea.size() < mainCapacity) {
+            probation.put(candidate, Boolean.TRUE);
+            return;
+        }
+        LinkedHashMap<K, Boolean> victimArea = probation.isEmpty() ? protectedArea : probation;
+        K victim = eldest(victimArea);
+        // TinyLFU 准入：候选的历史访问频率必须高于要被挤掉的条目
+        if (sketch.frequency(candidate) > sketch.frequency(victim)) {
+            victimArea.remove(victim);
+            data.remove(victim);
+            probation.put(candidate, Boolean.TRUE);
+        } else {
+            data.remove(candidate);
+            rejected.increment();
+        }
+        evictions.increment();
+    }
+
+    private static <K> K eldest(LinkedHashMap<K, Boolean> area) {
+        Iterator<K> it = area.keySet().iterator();
+        return it.next();
+    }
+
+    public int size() {
+        return data.size();
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    public double hitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("命中 %d，未命中 %d（命中率 %.1f%%），回源 %d，合并 %d，淘汰 %d（其中拒绝准入 %d），提前刷新 %d，条目 %d",
+                hits.sum(), misses.sum(), hitRate() * 100, loads.sum(), coalesced.sum(),
+                evictions.sum(), rejected.sum(), refreshes.sum(), size());
+    }
+
+    private static final class Node<V> {
+        final V value;
+        final long loadedAt;
+        final AtomicBoolean refreshing = new AtomicBoolean();
+
+        Node(V value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
+
+/**
+ * Count-Min Sketch：每个计数 4 位（最大 15），一个 long 装 16 个计数，每个 key 落 4 个计数取最小值
+ * 计数总增量达到 sampleSize 时所有计数减半，让过去的热点逐渐冷却。
+ */
+final class FrequencySketch {
+    private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final long[] table;
+    private final int counterMask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(int capacity) {
+        int n = 1;
+        while (n < Math.max(capacity, 16)) {
+            n <<= 1;
+        }
+        // n 个 long 共 16n 个计数，4 行哈希共用
+        this.table = new long[n];
+        this.counterMask = n * 16 - 1;
+        this.sampleSize = 10 * capacity;
+    }
+
+    int frequency(Object key) {
+        int hash = key.hashCode();
+        int min = 15;
+        for (int i = 0; i < 4; i++) {
+            int counter = counterIndex(hash, i);
+            min = Math.min(min, (int) ((table[counter >>> 4] >>> ((counter & 15) << 2)) & 15));
+        }
+        return min;
+    }
+
+    void increment(Object key) {
+        int hash = key.hashCode();
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            int counter = counterIndex(hash, i);
+            int shift = (counter & 15) << 2;
+            int slot = counter >>> 4;
+            if (((table[slot] >>> shift) & 15) < 15) {
+                table[slot] += 1L << shift;
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions /= 2;
+    }
+
+    private int counterIndex(int hash, int row) {
+        long h = (hash + SEEDS[row]) * SEEDS[row];
+        h ^= h >>> 32;
+        return (int) h & counterMask;
+    }
+}
@@ -0,0 +1,244 @@
+package Action.Facade;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+// 二级缓存接口：生产上是 Redis 等远程缓存，可替换
+interface PriceStore {
+    Double get(String sku);
+
+    void put(String sku, double price);
+}
+
+// 本地替身：用 ConcurrentHashMap 模拟远程缓存，带固定网络延迟和写入后过期时间（相当于 Redis 的 SET ... PX）。
+// 过期时间要短于近端缓存的 refreshAfter，否则近端刷新、过期重载时读到的仍是二级缓存里的旧价格
+class LocalPriceStore implements PriceStore {
+    private final ConcurrentHashMap<String, Entry> prices = new ConcurrentHashMap<>();
+    private final long latencyMillis;
+    private final long ttlNanos;
+
+    LocalPriceStore(long latencyMillis, long ttlMillis) {
+        if (ttlMillis <= 0) {
+            throw new IllegalArgumentException("二级缓存过期时间必须大于 0");
+        }
+        this.latencyMillis = latencyMillis;
+        this.ttlNanos = ttlMillis * 1_000_000;
+    }
+
+    @Override
+    public Double get(String sku) {
+        ProductCatalog.sleep(latencyMillis);
+        Entry entry = prices.get(sku);
+        if (entry == null) {
+            return null;
+        }
+        if (System.nanoTime() - entry.writtenAt >= ttlNanos) {
+            prices.remove(sku, entry);
+            return null;
+        }
+        return entry.price;
+    }
+
+    @Override
+    public void put(String sku, double price) {
+        prices.put(sku, new Entry(price, System.nanoTime()));
+    }
+
+    private static final class Entry {
+        final double price;
+        final long writtenAt;
+
+        Entry(double price, long writtenAt) {
+            this.price = price;
+            this.writtenAt = writtenAt;
+        }
+    }
+}
+
+// 商品目录（源数据，模拟数据库查询）
+class ProductCatalog {
+    private final Map<String, Double> fixedPrices = new ConcurrentHashMap<>();
+    private final long latencyMillis;
+    final LongAdder queries = new LongAdder();
+
+    ProductCatalog(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+        fixedPrices.put("商品A", 120.0);
+        fixedPrices.put("商品B", 80.0);
+    }
+
+    public double priceOf(String sku) {
+        queries.increment();
+        sleep(latencyMillis);
+        Double fixed = fixedPrices.get(sku);
+        // 其余 SKU 按编号生成一个稳定的价格
+        return fixed != null ? fixed : 10 + Math.floorMod(sku.hashCode(), 990);
+    }
+
+    void updatePrice(String sku, double price) {
+        fixedPrices.put(sku, price);
+    }
+
+    static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
+
+// 二级回源：近端缓存未命中时先查二级缓存，再查商品目录并回填二级缓存
+class TieredPriceLoader implements Function<String, Double> {
+    private final PriceStore secondLevel;
+    private final ProductCatalog catalog;
+    private final LongAdder secondLevelHits = new LongAdder();
+    private final LongAdder catalogLoads = new LongAdder();
+
+    TieredPriceLoader(PriceStore secondLevel, ProductCatalog catalog) {
+        this.secondLevel = secondLevel;
+        this.catalog = catalog;
+    }
+
+    @Override
+    public Double apply(String sku) {
+        Double price = secondLevel.get(sku);
+        if (price != null) {
+            secondLevelHits.increment();
+            return price;
+        }
+        catalogLoads.increment();
+        price = catalog.priceOf(sku);
+        secondLevel.put(sku, price);
+        return price;
+    }
+
+    @Override
+    public String toString() {
+        return "二级缓存命中 " + secondLevelHits.sum() + "，查商品目录 " + catalogLoads.sum();
+    }
+}
+
+// 测试类：命中率对比、回源合并、热点提前刷新
+class ProductPriceCacheTest {
+    public static void main(String[] args) throws InterruptedException {
+        hitRate();
+        coalescing();
+        refreshAhead();
+    }
+
+    // Zipf 分布的热点访问中穿插大范围扫描，对比 W-TinyLFU 与普通 LRU 的命中率
+    private static void hitRate() {
+        int capacity = 1000;
+        int[] keys = workload(1_000_000, 100_000);
+        NearCache<String, Double> tinyLfu = new NearCache<>(capacity, sku -> 1.0, Runnable::run, 60_000, 60_000);
+        LinkedHashMap<String, Double> lru = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Double> eldest) {
+                return size() > capacity;
+            }
+        };
+        String[] names = new String[100_000];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = "SKU" + i;
+        }
+        long lruHits = 0;
+        for (int k : keys) {
+            tinyLfu.get(names[k]);
+            if (lru.get(names[k]) != null) {
+                lruHits++;
+            } else {
+                lru.put(names[k], 1.0);
+            }
+        }
+        System.out.printf("容量 %d，100 万次访问：W-TinyLFU 命中率 %.1f%%，LRU 命中率 %.1f%%%n",
+                capacity, tinyLfu.hitRate() * 100, lruHits * 100.0 / keys.length);
+        System.out.println("  " + tinyLfu);
+    }
+
+    // 80% 请求服从 Zipf(0.9)，20% 是顺序扫描
+    private static int[] workload(int n, int keySpace) {
+        double[] cdf = new double[keySpace];
+        double sum = 0;
+        for (int i = 0; i < keySpace; i++) {
+            sum += 1 / Math.pow(i + 1, 0.9);
+            cdf[i] = sum;
+        }
+        Random random = new Random(42);
+        int[] keys = new int[n];
+        int scan = 0;
+        for (int i = 0; i < n; i++) {
+            if (random.nextInt(5) == 0) {
+                keys[i] = scan++ % keySpace;
+            } else {
+                int index = Arrays.binarySearch(cdf, random.nextDouble() * sum);
+                keys[i] = Math.min(keySpace - 1, index < 0 ? -index - 1 : index);
+            }
+        }
+        return keys;
+    }
+
+    // 50 个线程同时查同一个冷 SKU：只回源一次
+    private static void coalescing() throws InterruptedException {
+        ProductCatalog catalog = new ProductCatalog(50);
+        TieredPriceLoader loader = new TieredPriceLoader(new LocalPriceStore(1, 60_000), catalog);
+        NearCache<String, Double> cache = new NearCache<>(1000, loader, Runnable::run, 60_000, 60_000);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(50);
+        for (int i = 0; i < 50; i++) {
+            new Thread(() -> {
+                try {
+                    start.await();
+                    cache.get("商品A");
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                done.countDown();
+            }).start();
+        }
+        start.countDown();
+        done.await();
+        System.out.println("50 个并发未命中：商品目录查询 " + catalog.queries.sum() + " 次；" + loader);
+        System.out.println("  " + cache);
+        if (catalog.queries.sum() != 1) {
+            throw new AssertionError("并发未命中应合并为一次回源");
+        }
+    }
+
+    // 热点 SKU 超过 refreshAfter 后被读到：读者立即拿旧值，后台经二级缓存回源刷新成新价格
+    // （二级缓存的过期时间短于 refreshAfter，刷新时二级缓存里的旧价格已经过期）
+    private static void refreshAhead() throws InterruptedException {
+        ProductCatalog catalog = new ProductCatalog(20);
+        TieredPriceLoader loader = new TieredPriceLoader(new LocalPriceStore(1, 50), catalog);
+        ExecutorService refresher = Executors.newSingleThreadExecutor();
+        NearCache<String, Double> cache = new NearCache<>(1000, loader, refresher, 100, 10_000);
+        ProductService productService = new ProductService(cache);
+        for (int i = 0; i < 10; i++) {
+            productService.getTotalPrice(Arrays.asList("商品A", "商品B"));
+        }
+        catalog.updatePrice("商品A", 99.0);
+        Thread.sleep(150);
+        long t0 = System.nanoTime();
+        double stale = productService.getTotalPrice(Arrays.asList("商品A", "商品B"));
+        long readMicros = (System.nanoTime() - t0) / 1000;
+        Thread.sleep(100);
+        double fresh = productService.getTotalPrice(Arrays.asList("商品A", "商品B"));
+        System.out.printf("提前刷新：过期后首次读取 %.1f（耗时 %d us，不等回源），刷新后 %.1f%n", stale, readMicros, fresh);
+        System.out.println("  " + cache + "；" + loader);
+        refresher.shutdown();
+        if (fresh != 179.0) {
+            throw new AssertionError("热点 SKU 应已在后台刷新为新价格");
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package Action.Facade;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 进程内分段库存引擎（秒杀预扣减）
+ *
+ * 每个 SKU 的库存被拆成若干分片（stripe），存放在一个按缓存行填充的 AtomicLongArray 中；
+ * 线程优先在自己的分片上 CAS 扣减，分片不够时再去其他分片“借”，
+ * 这样同一个热点 SKU 上的大量请求不会串行在同一把锁 / 同一个计数器上。
+ */
+public class StripedInventory {
+    // 每个分片占 16 个 long（128 字节），避免相邻分片落在同一缓存行产生伪共享
+    private static final int PAD = 16;
+    // 预扣减失败时返回的令牌
+    public static final long NO_TOKEN = -1L;
+
+    private final int stripes;
+    private final int capacity;
+    private final AtomicLongArray cells;
+    private final ConcurrentHashMap<String, Integer> skuSlots = new ConcurrentHashMap<>();
+    private final AtomicInteger nextSlot = new AtomicInteger();
+    // 预扣减记录：令牌 → 预留信息，确认或回滚后移除
+    private final ConcurrentHashMap<Long, Reservation> reservations = new ConcurrentHashMap<>();
+    private final AtomicLong tokenSeq = new AtomicLong();
+
+    public StripedInventory(int capacity) {
+        this(capacity, Runtime.getRuntime().availableProcessors());
+    }
+
+    public StripedInventory(int capacity, int stripes) {
+        if (capacity <= 0 || stripes <= 0) {
+            throw new IllegalArgumentException("capacity 和 stripes 必须大于 0");
+        }
+        // 分片数取 2 的幂，方便用位运算定位分片
+        int n = 1;
+        while (n < stripes) {
+            n <<= 1;
+        }
+        this.stripes = n;
+        this.capacity = capacity;
+        this.cells = new AtomicLongArray(capacity * n * PAD);
+    }
+
+    // 初始化（或重置）某个 SKU 的库存，均匀分摊到各个分片
+    public void initStock(String skuId, long total) {
+        if (total < 0) {
+            throw new IllegalArgumentException("库存不能为负数：" + total);
+        }
+        int slot = slotOf(skuId);
+        long share = total / stripes;
+        long remainder = total % stripes;
+        for (int i = 0; i < stripes; i++) {
+            cells.set(index(slot, i), share + (i < remainder ? 1 : 0));
+        }
+    }
+
+    // 当前可用库存（各分片之和，并发下为近似值）
+    public long available(String skuId) {
+        Integer slot = skuSlots.get(skuId);
+        if (slot == null) {
+            return 0;
+        }
+        long sum = 0;
+        for (int i = 0; i < stripes; i++) {
+            sum += cells.get(index(slot, i));
+        }
+        return sum;
+    }
+
+    // 预扣减：成功返回令牌，库存不足或 SKU 不存在返回 NO_TOKEN
+    public long reserve(String skuId, int quantity) {
+        Integer slot = skuSlots.get(skuId);
+        if (slot == null || !tryDeduct(slot, quantity)) {
+            return NO_TOKEN;
+        }
+        long token = tokenSeq.incrementAndGet();
+        reservations.put(token, new Reservation(slot, quantity));
+        return token;
+    }
+
+    // 确认扣减：预留转为真实扣减，令牌失效
+    public boolean confirm(long token) {
+        return reservations.remove(token) != null;
+    }
+
+    // 回滚：预留的库存归还到当前线程的分片
+    public boolean rollback(long token) {
+        Reservation reservation = reservations.remove(token);
+        if (reservation == null) {
+            return false;
+        }
+        cells.getAndAdd(index(reservation.slot, homeStripe()), reservation.quantity);
+        return true;
+    }
+
+    // 直接扣减（不产生令牌），库存不足时不扣减任何数量
+    public boolean tryDeduct(String skuId, int quantity) {
+        Integer slot = skuSlots.get(skuId);
+        return slot != null && tryDeduct(slot, quantity);
+    }
+
+    // 尽量扣减：最多扣减 quantity 个，返回实际扣减数量（用于合并扣减后按顺序分配结果）
+    public long deductUpTo(String skuId, long quantity) {
+        Integer slot = skuSlots.get(skuId);
+        if (slot == null || quantity <= 0) {
+            return 0;
+        }
+        return deductUpTo(slot, quantity, homeStripe());
+    }
+
+    // 归还库存（如订单取消），加回当前线程的分片
+    public void release(String skuId, int quantity) {
+        Integer slot = skuSlots.get(skuId);
+        if (slot == null) {
+            throw new IllegalArgumentException("未初始化的 SKU：" + skuId);
+        }
+        cells.getAndAdd(index(slot, homeStripe()), quantity);
+    }
+
+    private boolean tryDeduct(int slot, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("扣减数量必须大于 0：" + quantity);
+        }
+        int home = homeStripe();
+        // 第一轮：找一个能单独满足本次扣减的分片
+        for (int i = 0; i < stripes; i++) {
+            int idx = index(slot, (home + i) & (stripes - 1));
+            long current;
+            while ((current = cells.get(idx)) >= quantity) {
+                if (cells.compareAndSet(idx, current, current - quantity)) {
+                    return true;
+                }
+            }
+        }
+        // 第二轮：库存被打散在多个分片上，逐片凑齐，凑不齐则全部归还
+        long taken = deductUpTo(slot, quantity, home);
+        if (taken == quantity) {
+            return true;
+        }
+        if (taken > 0) {
+            cells.getAndAdd(index(slot, home), taken);
+        }
+        return false;
+    }
+
+    private long deductUpTo(int slot, long quantity, int home) {
+        long taken = 0;
+        for (int i = 0; i < stripes && taken < quantity; i++) {
+            int idx = index(slot, (home + i) & (stripes - 1));
+            long current;
+            while ((current = cells.get(idx)) > 0) {
+                long take = Math.min(current, quantity - taken);
+                if (cells.compareAndSet(idx, current, current - take)) {
+                    taken += take;
+                    break;
+                }
+            }
+        }
+        return taken;
+    }
+
+    private int slotOf(String skuId) {
+        Integer slot = skuSlots.get(skuId);
+        if (slot != null) {
+            return slot;
+        }
+        return skuSlots.computeIfAbsent(skuId, k -> {
+            int next = nextSlot.getAndIncrement();
+            if (next >= capacity) {
+                throw new IllegalStateException("SKU 数量超过容量上限：" + capacity);
+            }
+            return next;
+        });
+    }
+
+    private int index(int slot, int stripe) {
+        return (slot * stripes + stripe) * PAD;
+    }
+
+    // 按线程 id 散列到固定分片，同一线程始终优先访问同一分片
+    private int homeStripe() {
+        long id = Thread.currentThread().getId();
+        int h = (int) (id * 0x9E3779B97F4A7C15L >>> 32);
+        return h & (stripes - 1);
+    }
+
+    private static final class Reservation {
+        final int slot;
+        final int quantity;
+
+        Reservation(int slot, int quantity) {
+            this.slot = slot;
+            this.quantity = quantity;
+        }
+    }
+}
@@ -0,0 +1,373 @@
+package Action.Observer;
+
+import Action.Template.LatencyHistogram;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 异步订单状态主题
+ *
+ * 每个观察者拥有独立的投递器：若干条“通道”，每条通道一个有界队列 + 一个专属消费线程。
+ * 同一个 orderId 总是落在同一条通道上，因此对同一订单的状态是按顺序投递的；
+ * 慢观察者只会堆积自己的队列，不会拖慢状态变更本身，也不会拖慢其他观察者。
+ * 发布方从不等待：通道的锁只保护几次 O(1) 的入队 / 出队操作，消费线程等待时会释放锁。
+ * 溢出策略是按订单合并：队列满时事件放进通道的溢出表，每个订单只保留最新状态（被覆盖的旧状态计入 conflated）；
+ * 订单在溢出表里时，它的后续事件也进溢出表，因此同一订单不会乱序，最终状态一定会送达。
+ * 消费线程每取走一条队列事件就把一个溢出订单补进队尾，溢出表的大小不超过积压订单数。
+ * detach 之后到达的事件被拒绝（计入 rejected），detach 之前进入通道的事件都会投递完。
+ */
+class AsyncOrderStatusSubject implements OrderSubject {
+    private final ConcurrentHashMap<OrderObserver, ObserverDispatcher> dispatchers = new ConcurrentHashMap<>();
+    private final int lanesPerObserver;
+    private final int queueCapacity;
+    // 投递延迟：入队 → 观察者处理完成
+    private final LatencyHistogram deliveryLag = new LatencyHistogram();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder enqueued = new LongAdder();
+    // 队列满、转入溢出表的事件
+    private final LongAdder overflowed = new LongAdder();
+    // 还没投递就被同一订单的新状态覆盖的事件
+    private final LongAdder conflated = new LongAdder();
+    // 观察者已 detach、投递器停止后才到达而被拒绝的事件
+    private final LongAdder rejected = new LongAdder();
+
+    public AsyncOrderStatusSubject(int lanesPerObserver, int queueCapacity) {
+        if (lanesPerObserver <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("lanesPerObserver 和 queueCapacity 必须大于 0");
+        }
+        this.lanesPerObserver = lanesPerObserver;
+        this.queueCapacity = queueCapacity;
+    }
+
+    @Override
+    public void attach(OrderObserver observer) {
+        dispatchers.computeIfAbsent(observer, ObserverDispatcher::new);
+    }
+
+    @Override
+    public void detach(OrderObserver observer) {
+        ObserverDispatcher dispatcher = dispatchers.remove(observer);
+        if (dispatcher != null) {
+            // 已入队的事件投递完再退出
+            dispatcher.stop();
+        }
+    }
+
+    @Override
+    public void notifyObservers(String orderId, String status) {
+        long now = System.nanoTime();
+        for (ObserverDispatcher dispatcher : dispatchers.values()) {
+            dispatcher.enqueue(new StatusEvent(orderId, status, now));
+        }
+    }
+
+    // 订单状态变更
+    public void changeStatus(String orderId, String status) {
+        System.out.println("订单[" + orderId + "]状态变更为：" + status);
+        notifyObservers(orderId, status);
+    }
+
+    // 所有观察者队列（含溢出表）中尚未投递的事件数
+    public int queueDepth() {
+        int depth = 0;
+        for (ObserverDispatcher dispatcher : dispatchers.values()) {
+            depth += dispatcher.queueDepth();
+        }
+        return depth;
+    }
+
+    public LatencyHistogram deliveryLag() {
+        return deliveryLag;
+    }
+
+    public long failures() {
+        return failures.sum();
+    }
+
+    public long enqueued() {
+        return enqueued.sum();
+    }
+
+    public long overflowed() {
+        return overflowed.sum();
+    }
+
+    public long conflated() {
+        return conflated.sum();
+    }
+
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    public void shutdown() {
+        for (OrderObserver observer : dispatchers.keySet()) {
+            detach(observer);
+        }
+    }
+
+    private static final class StatusEvent {
+        final String orderId;
+        final String status;
+        final long enqueueNanos;
+
+        StatusEvent(String orderId, String status, long enqueueNanos) {
+            this.orderId = orderId;
+            this.status = status;
+            this.enqueueNanos = enqueueNanos;
+        }
+    }
+
+    // 一条通道：有界队列 + 按订单合并的溢出表，由一把短锁保护
+    private final class Lane {
+        private final ArrayDeque<StatusEvent> queue = new ArrayDeque<>(queueCapacity);
+        // 按进入溢出表的先后排序；同一订单重复放入时位置不变，只替换为最新状态
+        private final LinkedHashMap<String, StatusEvent> overflow = new LinkedHashMap<>();
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition notEmpty = lock.newCondition();
+        private boolean closed;
+
+        void offer(StatusEvent event) {
+            lock.lock();
+            try {
+                if (closed) {
+                    rejected.increment();
+                    return;
+                }
+                if (overflow.containsKey(event.orderId)) {
+                    // 该订单已有事件在溢出表里，新状态只能排在它后面：直接覆盖
+                    overflow.put(event.orderId, event);
+                    conflated.increment();
+                } else if (queue.size() < queueCapacity) {
+                    queue.addLast(event);
+                    enqueued.increment();
+                } else {
+                    overflow.put(event.orderId, event);
+                    overflowed.increment();
+                }
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // 取下一条事件；通道关闭且已清空时返回 null
+        StatusEvent take() throws InterruptedException {
+            lock.lock();
+            try {
+                while (queue.isEmpty() && overflow.isEmpty()) {
+                    if (closed) {
+                        return null;
+                    }
+                    notEmpty.await();
+                }
+                StatusEvent event = queue.pollFirst();
+                if (!overflow.isEmpty()) {
+                    // 腾出的位置补一个溢出订单：它在队列里已没有更早的事件，排到队尾不会乱序
+                    Iterator<Map.Entry<String, StatusEvent>> it = overflow.entrySet().iterator();
+                    queue.addLast(it.next().getValue());
+                    it.remove();
+                    if (event == null) {
+                        event = queue.pollFirst();
+                    }
+                }
+                return event;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int size() {
+            lock.lock();
+            try {
+                return queue.size() + overflow.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void close() {
+            lock.lock();
+            try {
+                closed = true;
+                notEmpty.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // 单个观察者的投递器：按 orderId 散列到固定通道，保证同一订单有序
+    private final class ObserverDispatcher {
+        private final OrderObserver observer;
+        private final Lane[] lanes;
+
+        ObserverDispatcher(OrderObserver observer) {
+            this.observer = observer;
+            this.lanes = new Lane[lanesPerObserver];
+            for (int i = 0; i < lanesPerObserver; i++) {
+                Lane lane = new Lane();
+                lanes[i] = lane;
+                Thread consumer = new Thread(() -> consume(lane),
+                        "observer-" + observer.getClass().getSimpleName() + "-" + i);
+                consumer.setDaemon(true);
+                consumer.start();
+            }
+        }
+
+        void enqueue(StatusEvent event) {
+            lanes[(event.orderId.hashCode() & 0x7fffffff) % lanes.length].offer(event);
+        }
+
+        int queueDepth() {
+            int depth = 0;
+            for (Lane lane : lanes) {
+                depth += lane.size();
+            }
+            return depth;
+        }
+
+        void stop() {
+            for (Lane lane : lanes) {
+                lane.close();
+            }
+        }
+
+        // 停止后继续把已入队的事件投递完再退出
+        private void consume(Lane lane) {
+            while (true) {
+                StatusEvent event;
+                try {
+                    event = lane.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (event == null) {
+                    return;
+                }
+                // 故障隔离：异常只记数，不影响本通道后续事件和其他观察者
+                try {
+                    observer.update(event.orderId, event.status);
+                } catch (RuntimeException e) {
+                    failures.increment();
+                    System.out.println("观察者[" + observer.getClass().getSimpleName() + "]处理订单["
+                            + event.orderId + "]失败：" + e);
+                }
+                deliveryLag.record(System.nanoTime() - event.enqueueNanos);
+            }
+        }
+    }
+}
+
+// 测试类：慢观察者和异常观察者不影响状态变更与其他观察者
+class AsyncObserverTest {
+    public static void main(String[] args) throws InterruptedException {
+        AsyncOrderStatusSubject subject = new AsyncOrderStatusSubject(2, 1024);
+        subject.attach(new UserObserver());
+        subject.attach(new LogisticsObserver());
+        subject.attach(new FinanceObserver());
+        // 慢观察者：每条事件处理 50ms
+        subject.attach((orderId, status) -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        // 异常观察者
+        subject.attach((orderId, status) -> {
+            throw new IllegalStateException("下游不可用");
+        });
+
+        long start = System.nanoTime();
+        for (int i = 1; i <= 3; i++) {
+            String orderId = "ORD00" + i;
+            subject.changeStatus(orderId, "已付款");
+            subject.changeStatus(orderId, "已发货");
+        }
+        System.out.println("状态变更耗时：" + (System.nanoTime() - start) / 1000 + "us，队列积压：" + subject.queueDepth());
+
+        subject.shutdown();
+        while (subject.deliveryLag().count() < 6 * 5) {
+            Thread.sleep(10);
+        }
+        System.out.println("投递延迟：" + subject.deliveryLag() + "，失败次数：" + subject.failures());
+
+        detachWhilePublishing();
+        slowObserverOverflow();
+    }
+
+    // 发布过程中 detach：进入通道的事件必须全部投递，停止后到达的事件被拒绝而不是丢在队列里
+    private static void detachWhilePublishing() throws InterruptedException {
+        AsyncOrderStatusSubject subject = new AsyncOrderStatusSubject(4, 100_000);
+        LongAdder received = new LongAdder();
+        OrderObserver counter = (orderId, status) -> received.increment();
+        subject.attach(counter);
+        Thread publisher = new Thread(() -> {
+            for (int i = 0; i < 200_000; i++) {
+                subject.notifyObservers("ORD" + (i % 1000), "已付款");
+            }
+        });
+        publisher.start();
+        Thread.sleep(5);
+        subject.detach(counter);
+        publisher.join();
+        long expected = subject.enqueued() + subject.overflowed();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (received.sum() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        System.out.println("detach 并发：入队 " + expected + "，投递 " + received.sum() + "，拒绝 " + subject.rejected());
+        if (received.sum() != expected) {
+            throw new AssertionError("detach 前入队的事件应全部投递");
+        }
+    }
+
+    // 慢观察者塞满队列：发布方不等待；溢出的订单只保留最新状态，同一订单按顺序投递，最终状态一定送达
+    private static void slowObserverOverflow() throws InterruptedException {
+        AsyncOrderStatusSubject subject = new AsyncOrderStatusSubject(1, 4);
+        Map<String, Integer> lastSeen = new ConcurrentHashMap<>();
+        LongAdder outOfOrder = new LongAdder();
+        subject.attach((orderId, status) -> {
+            int seq = Integer.parseInt(status.substring(2));
+            Integer previous = lastSeen.put(orderId, seq);
+            if (previous != null && previous >= seq) {
+                outOfOrder.increment();
+            }
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        long start = System.nanoTime();
+        for (int i = 0; i < 50; i++) {
+            subject.notifyObservers("ORD00" + (i % 3), "状态" + i);
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        while (subject.queueDepth() > 0) {
+            Thread.sleep(10);
+        }
+        subject.shutdown();
+        Thread.sleep(50);
+        System.out.println("慢观察者：50 条事件发布耗时 " + elapsedMillis + "ms，溢出 " + subject.overflowed()
+                + "，合并 " + subject.conflated() + "，最终状态 " + lastSeen);
+        if (elapsedMillis > 100 || subject.conflated() == 0 || outOfOrder.sum() != 0) {
+            throw new AssertionError("队列满时发布方不应等待，同一订单不能乱序");
+        }
+        for (int order = 0; order < 3; order++) {
+            int last = 49 - (49 - order) % 3;
+            if (lastSeen.get("ORD00" + order) != last) {
+                throw new AssertionError("订单 ORD00" + order + " 的最终状态应为 状态" + last);
+            }
+        }
+    }
+}
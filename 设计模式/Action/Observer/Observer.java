@@ -1,7 +1,7 @@
 package Action.Observer;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 // 1. 抽象观察者：订单状态观察者
 interface OrderObserver {
@@ -17,7 +17,8 @@ interface OrderSubject {
 
 // 3. 具体主题：订单状态管理
 class OrderStatusSubject implements OrderSubject {
-    private List<OrderObserver> observers = new ArrayList<>();
+    // 写时复制：通知过程中 attach / detach 不会抛 ConcurrentModificationException
+    private List<OrderObserver> observers = new CopyOnWriteArrayList<>();
 
     @Override
     public void attach(OrderObserver observer) {
@@ -32,7 +33,12 @@ class OrderStatusSubject implements OrderSubject {
     @Override
     public void notifyObservers(String orderId, String status) {
         for (OrderObserver observer : observers) {
-            observer.update(orderId, status);
+            // 单个观察者异常不影响其他观察者
+            try {
+                observer.update(orderId, status);
+            } catch (RuntimeException e) {
+                System.out.println("观察者[" + observer.getClass().getSimpleName() + "]处理订单[" + orderId + "]失败：" + e);
+            }
         }
     }
 
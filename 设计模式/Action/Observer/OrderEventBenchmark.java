@@ -0,0 +1,104 @@
+package Action.Observer;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 订单状态事件吞吐压测（3 个观察者）
+ *
+ * 对比：同步遍历的 OrderStatusSubject、每观察者独立队列的 AsyncOrderStatusSubject、
+ * 预分配槽位的 RingBufferOrderSubject。计时从第一次发布开始，到所有观察者都处理完最后一条事件为止。
+ */
+class OrderEventBenchmark {
+    private static final int EVENTS = 2_000_000;
+    private static final String[] ORDER_IDS = new String[1024];
+
+    static {
+        for (int i = 0; i < ORDER_IDS.length; i++) {
+            ORDER_IDS[i] = "ORD" + i;
+        }
+    }
+
+    // 计数观察者：只做一次自增，突出主题本身的投递开销
+    static class CountingObserver implements OrderObserver {
+        final LongAdder received = new LongAdder();
+
+        @Override
+        public void update(String orderId, String status) {
+            received.increment();
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        for (int round = 0; round < 3; round++) {
+            System.out.printf("第 %d 轮  同步主题: %,12.0f events/s   异步队列主题: %,12.0f events/s   环形缓冲区主题: %,12.0f events/s%n",
+                    round + 1, runSync(), runAsync(), runRingBuffer());
+        }
+    }
+
+    private static double runSync() {
+        OrderStatusSubject subject = new OrderStatusSubject();
+        CountingObserver[] observers = attachObservers(subject);
+        long start = System.nanoTime();
+        for (int i = 0; i < EVENTS; i++) {
+            subject.notifyObservers(ORDER_IDS[i & 1023], "已付款");
+        }
+        awaitReceived(observers);
+        return EVENTS * 1e9 / (System.nanoTime() - start);
+    }
+
+    private static double runAsync() {
+        AsyncOrderStatusSubject subject = new AsyncOrderStatusSubject(1, 8192);
+        CountingObserver[] observers = attachObservers(subject);
+        long start = System.nanoTime();
+        for (int i = 0; i < EVENTS; i++) {
+            subject.notifyObservers(ORDER_IDS[i & 1023], "已付款");
+        }
+        // 队列满时同一订单的旧状态会被新状态覆盖，被覆盖的事件不会投递
+        long expected = (long) EVENTS * observers.length;
+        while (totalReceived(observers) + subject.conflated() < expected) {
+            Thread.yield();
+        }
+        double eventsPerSecond = EVENTS * 1e9 / (System.nanoTime() - start);
+        subject.shutdown();
+        return eventsPerSecond;
+    }
+
+    private static double runRingBuffer() {
+        RingBufferOrderSubject subject = new RingBufferOrderSubject(8192);
+        CountingObserver[] observers = attachObservers(subject);
+        int paid = RingBufferOrderSubject.statusCode("已付款");
+        long start = System.nanoTime();
+        for (int i = 0; i < EVENTS; i++) {
+            subject.publish(ORDER_IDS[i & 1023], paid);
+        }
+        awaitReceived(observers);
+        double eventsPerSecond = EVENTS * 1e9 / (System.nanoTime() - start);
+        subject.shutdown();
+        return eventsPerSecond;
+    }
+
+    private static CountingObserver[] attachObservers(OrderSubject subject) {
+        CountingObserver[] observers = new CountingObserver[3];
+        for (int i = 0; i < observers.length; i++) {
+            observers[i] = new CountingObserver();
+            subject.attach(observers[i]);
+        }
+        return observers;
+    }
+
+    private static long totalReceived(CountingObserver[] observers) {
+        long total = 0;
+        for (CountingObserver observer : observers) {
+            total += observer.received.sum();
+        }
+        return total;
+    }
+
+    private static void awaitReceived(CountingObserver[] observers) {
+        for (CountingObserver observer : observers) {
+            while (observer.received.sum() < EVENTS) {
+                Thread.yield();
+            }
+        }
+    }
+}
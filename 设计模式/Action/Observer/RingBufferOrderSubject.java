@@ -0,0 +1,172 @@
+package Action.Observer;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 环形缓冲区订单状态主题（Disruptor 思路）
+ *
+ * 事件槽在构造时一次性分配好（orderId 引用 + int 状态码），发布只是：
+ * 认领序号 → 覆写槽位字段 → 标记该序号已发布，整个过程不分配任何对象。
+ * 每个观察者有自己的消费序号和消费线程，按各自节奏追赶；
+ * 生产者认领序号时以“最慢的消费者”为屏障，绝不覆盖还没被所有人读过的槽位。
+ */
+class RingBufferOrderSubject implements OrderSubject {
+    // 状态码表：状态字符串 ↔ int，投递时直接取表中的常量字符串，不拼接、不新建
+    static final String[] STATUSES = {"待付款", "已付款", "已发货", "已收货", "已完成", "已取消"};
+
+    private final int mask;
+    private final String[] orderIds;
+    private final int[] statusCodes;
+    // 槽位发布标记：published[i] == seq 表示序号 seq 已写完，可被消费
+    private final AtomicLongArray published;
+    private final AtomicLong claimCursor = new AtomicLong(-1);
+    // 门控序号数组：只在 attach / detach 时整体重建，发布路径上直接按下标遍历，不创建迭代器
+    private volatile Consumer[] consumers = new Consumer[0];
+
+    public RingBufferOrderSubject(int bufferSize) {
+        if (bufferSize <= 0 || Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException("bufferSize 必须是 2 的幂：" + bufferSize);
+        }
+        this.mask = bufferSize - 1;
+        this.orderIds = new String[bufferSize];
+        this.statusCodes = new int[bufferSize];
+        this.published = new AtomicLongArray(bufferSize);
+        for (int i = 0; i < bufferSize; i++) {
+            published.set(i, -1);
+        }
+    }
+
+    public static int statusCode(String status) {
+        for (int i = 0; i < STATUSES.length; i++) {
+            if (STATUSES[i].equals(status)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("未知订单状态：" + status);
+    }
+
+    // 注册观察者：从当前游标之后开始消费
+    @Override
+    public synchronized void attach(OrderObserver observer) {
+        Consumer consumer = new Consumer(observer, claimCursor.get());
+        Consumer[] current = consumers;
+        Consumer[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = consumer;
+        consumers = updated;
+        consumer.start();
+    }
+
+    @Override
+    public synchronized void detach(OrderObserver observer) {
+        Consumer[] current = consumers;
+        Consumer[] kept = new Consumer[current.length];
+        int count = 0;
+        for (Consumer consumer : current) {
+            if (consumer.observer == observer) {
+                consumer.running = false;
+            } else {
+                kept[count++] = consumer;
+            }
+        }
+        consumers = Arrays.copyOf(kept, count);
+    }
+
+    @Override
+    public void notifyObservers(String orderId, String status) {
+        publish(orderId, statusCode(status));
+    }
+
+    // 零分配发布：多个生产者线程可以并发调用
+    public void publish(String orderId, int statusCode) {
+        long seq = claimCursor.incrementAndGet();
+        // 屏障：等最慢的消费者让出这个槽位
+        long wrapPoint = seq - orderIds.length;
+        while (wrapPoint > minConsumerSequence()) {
+            LockSupport.parkNanos(1);
+        }
+        int index = (int) seq & mask;
+        orderIds[index] = orderId;
+        statusCodes[index] = statusCode;
+        // 有序写：保证槽位字段先于发布标记对消费者可见
+        published.lazySet(index, seq);
+    }
+
+    public long cursor() {
+        return claimCursor.get();
+    }
+
+    // 所有消费者都已处理到 seq
+    public boolean drainedTo(long seq) {
+        return minConsumerSequence() >= seq;
+    }
+
+    public synchronized void shutdown() {
+        for (Consumer consumer : consumers) {
+            consumer.running = false;
+        }
+        consumers = new Consumer[0];
+    }
+
+    private long minConsumerSequence() {
+        Consumer[] gating = consumers;
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < gating.length; i++) {
+            min = Math.min(min, gating[i].sequence.get(PADDED_INDEX));
+        }
+        return min;
+    }
+
+    // 消费序号放在 16 个 long 的中间，避免和其他消费者的序号挤在同一缓存行
+    private static final int PADDED_INDEX = 7;
+
+    private final class Consumer extends Thread {
+        final OrderObserver observer;
+        final AtomicLongArray sequence = new AtomicLongArray(16);
+        volatile boolean running = true;
+
+        Consumer(OrderObserver observer, long startSequence) {
+            super("ring-observer-" + observer.getClass().getSimpleName());
+            this.observer = observer;
+            this.sequence.set(PADDED_INDEX, startSequence);
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            long next = sequence.get(PADDED_INDEX) + 1;
+            int idle = 0;
+            while (running) {
+                int index = (int) next & mask;
+                if (published.get(index) != next) {
+                    // 等待策略：先自旋，再让出 CPU，最后短暂休眠
+                    if (++idle < 100) {
+                        Thread.onSpinWait();
+                    } else if (idle < 200) {
+                        Thread.yield();
+                    } else {
+                        LockSupport.parkNanos(50_000);
+                    }
+                    continue;
+                }
+                idle = 0;
+                // 批量消费：一口气处理所有已发布的连续序号，最后一次性推进消费序号
+                long end = next;
+                do {
+                    int i = (int) end & mask;
+                    try {
+                        observer.update(orderIds[i], STATUSES[statusCodes[i]]);
+                    } catch (RuntimeException e) {
+                        System.out.println("观察者[" + observer.getClass().getSimpleName() + "]处理订单["
+                                + orderIds[i] + "]失败：" + e);
+                    }
+                    end++;
+                } while (published.get((int) end & mask) == end);
+                sequence.lazySet(PADDED_INDEX, end - 1);
+                next = end;
+            }
+        }
+    }
+}
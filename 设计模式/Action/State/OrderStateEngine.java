@@ -0,0 +1,215 @@
+package Action.State;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 表驱动的订单状态机
+ *
+ * 状态、事件都是小整数，状态流转由一张 [状态][事件] → 新状态 的表决定；
+ * 每个订单只占 byte[] 中的一个字节（按订单槽位下标存放），流转时不再 new 状态对象。
+ * 流转用 CAS 完成：同一订单上并发的 付款 / 发货 请求只有一个能成功。
+ * 流转规则与提示文案和 WaitPayState / WaitSendState / WaitReceiveState / FinishedState 保持一致。
+ */
+class OrderStateEngine {
+    // 状态
+    static final byte WAIT_PAY = 0;
+    static final byte WAIT_SEND = 1;
+    static final byte WAIT_RECEIVE = 2;
+    static final byte FINISHED = 3;
+    // 事件
+    static final int PAY = 0;
+    static final int SHIP = 1;
+    static final int RECEIVE = 2;
+
+    // 日志记录的 from 为 NEW_ORDER 表示分配了一个新槽位
+    static final byte NEW_ORDER = -1;
+
+    private static final int EVENTS = 3;
+    private static final byte REJECT = -1;
+
+    // 流转表：下标 = 状态 * EVENTS + 事件，REJECT 表示当前状态不允许该操作
+    private static final byte[] TRANSITIONS = {
+            // PAY        SHIP          RECEIVE
+            WAIT_SEND, REJECT, REJECT,          // 待付款
+            REJECT, WAIT_RECEIVE, REJECT,       // 待发货
+            REJECT, REJECT, FINISHED,           // 待收货
+            REJECT, REJECT, REJECT,             // 已完成
+    };
+
+    // 提示文案：与原状态类逐条对应
+    private static final String[] MESSAGES = {
+            "订单已付款，状态变更为：待发货", "待付款状态，无法发货", "待付款状态，无法收货",
+            "已付款状态，无需重复付款", "订单已发货，状态变更为：待收货", "待发货状态，无法收货",
+            "已付款状态，无需重复付款", "已发货状态，无需重复发货", "订单已收货，状态变更为：已完成",
+            "已完成状态，无需操作", "已完成状态，无需操作", "已完成状态，无需操作",
+    };
+
+    private static final VarHandle STATES = MethodHandles.arrayElementVarHandle(byte[].class);
+
+    private final byte[] states;
+    private final AtomicInteger nextSlot;
+    // 可选的状态流转日志：每次成功流转都追加一条记录
+    private volatile OrderStateLog journal;
+
+    public OrderStateEngine(int capacity) {
+        // 数组默认值 0 即 WAIT_PAY，新订单无需额外初始化
+        this(new byte[capacity], 0);
+    }
+
+    // 从快照 / 日志恢复
+    OrderStateEngine(byte[] states, int usedSlots) {
+        this.states = states;
+        this.nextSlot = new AtomicInteger(usedSlots);
+    }
+
+    public void setJournal(OrderStateLog journal) {
+        this.journal = journal;
+    }
+
+    // 分配一个订单槽位，初始状态为待付款；挂了日志时同时记一条分配记录，重启后不会重复分配
+    public int allocate() {
+        int slot = nextSlot.getAndIncrement();
+        if (slot >= states.length) {
+            throw new IllegalStateException("订单槽位已用完：" + states.length);
+        }
+        record(slot, NEW_ORDER, WAIT_PAY);
+        return slot;
+    }
+
+    public byte state(int slot) {
+        return (byte) STATES.getVolatile(states, slot);
+    }
+
+    // 触发事件：成功流转返回 true，当前状态不允许该操作返回 false
+    public boolean fire(int slot, int event) {
+        while (true) {
+            byte current = state(slot);
+            byte next = TRANSITIONS[current * EVENTS + event];
+            if (next == REJECT) {
+                return false;
+            }
+            if (STATES.compareAndSet(states, slot, current, next)) {
+                record(slot, current, next);
+                return true;
+            }
+        }
+    }
+
+    // 触发事件并返回该次操作的提示文案（与原状态类输出一致）
+    public String fireAndDescribe(int slot, int event) {
+        while (true) {
+            byte current = state(slot);
+            byte next = TRANSITIONS[current * EVENTS + event];
+            if (next == REJECT) {
+                return MESSAGES[current * EVENTS + event];
+            }
+            if (STATES.compareAndSet(states, slot, current, next)) {
+                record(slot, current, next);
+                return MESSAGES[current * EVENTS + event];
+            }
+        }
+    }
+
+    // 由 OrderContext 驱动的流转：规则已由状态类判断过，这里只同步状态表并记日志
+    void moveTo(int slot, byte from, byte to) {
+        if (STATES.compareAndSet(states, slot, from, to)) {
+            record(slot, from, to);
+        }
+    }
+
+    public int usedSlots() {
+        return Math.min(nextSlot.get(), states.length);
+    }
+
+    public int capacity() {
+        return states.length;
+    }
+
+    // 状态数组的副本（用于快照，并发流转下是“模糊快照”，由日志回放补齐）
+    byte[] copyStates() {
+        byte[] copy = new byte[states.length];
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = (byte) STATES.getOpaque(states, i);
+        }
+        return copy;
+    }
+
+    // 原状态类 → 状态码
+    static byte codeOf(OrderState state) {
+        if (state instanceof WaitPayState) {
+            return WAIT_PAY;
+        }
+        if (state instanceof WaitSendState) {
+            return WAIT_SEND;
+        }
+        if (state instanceof WaitReceiveState) {
+            return WAIT_RECEIVE;
+        }
+        if (state instanceof FinishedState) {
+            return FINISHED;
+        }
+        throw new IllegalArgumentException("未知订单状态：" + state.getClass().getName());
+    }
+
+    private void record(int slot, byte from, byte to) {
+        OrderStateLog log = journal;
+        if (log != null) {
+            log.append(slot, from, to);
+        }
+    }
+}
+
+// 订单上下文的轻量视图：只持有槽位号，行为与 OrderContext 一致
+class TableOrderContext {
+    private final OrderStateEngine engine;
+    private final int slot;
+
+    public TableOrderContext(OrderStateEngine engine) {
+        this.engine = engine;
+        this.slot = engine.allocate();
+    }
+
+    public void pay() {
+        System.out.println(engine.fireAndDescribe(slot, OrderStateEngine.PAY));
+    }
+
+    public void ship() {
+        System.out.println(engine.fireAndDescribe(slot, OrderStateEngine.SHIP));
+    }
+
+    public void receive() {
+        System.out.println(engine.fireAndDescribe(slot, OrderStateEngine.RECEIVE));
+    }
+}
+
+// 测试类
+class OrderStateEngineTest {
+    public static void main(String[] args) throws InterruptedException {
+        OrderStateEngine engine = new OrderStateEngine(1_000_000);
+
+        // 与 StateTest 相同的流转
+        TableOrderContext order = new TableOrderContext(engine);
+        order.pay();    // 待付款 → 待发货
+        order.ship();   // 待发货 → 待收货
+        order.receive();// 待收货 → 已完成
+        order.pay();    // 已完成，无操作
+
+        // 并发付款：同一订单 8 个线程同时付款，只有一个成功
+        int slot = engine.allocate();
+        AtomicInteger paid = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(8);
+        for (int i = 0; i < 8; i++) {
+            new Thread(() -> {
+                if (engine.fire(slot, OrderStateEngine.PAY)) {
+                    paid.incrementAndGet();
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+        System.out.println("并发付款成功次数：" + paid.get() + "，当前状态：" + engine.state(slot));
+    }
+}
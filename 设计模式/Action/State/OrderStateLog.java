@@ -0,0 +1,322 @@
+package Action.State;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * 订单状态流转日志（事件溯源）
+ *
+ * 每次状态流转追加一条定长 24 字节的记录到内存映射的只追加文件：
+ *   slot(8) | timestamp(8) | from(1) | to(1) | reserved(2) | magic(4)
+ * slot 是 OrderStateEngine 分配的订单槽位；分配槽位本身也记一条（from = NEW_ORDER），
+ * 这样重启后不会把一个已经发出、但还没流转过的槽位再分配一次。
+ * magic 写在最后，读到 magic 不对就说明到了日志末尾（或最后一条没写完）。
+ * 定期把整张状态表压缩成快照（每个订单 1 字节），并记下快照对应的日志位置；
+ * 自动快照在后台线程上做，append 只负责触发，不会在持锁期间复制状态表、刷盘。
+ * 重启时：读快照 → 从快照位置开始顺序扫描日志尾部 → 得到全部订单的最新状态。
+ *
+ * 订单状态只会单调前进（待付款 → 待发货 → 待收货 → 已完成），回放时对每个订单取 max(to)，
+ * 因此回放结果与并发写入时日志记录的先后顺序无关，快照也可以是不加锁的“模糊快照”。
+ */
+class OrderStateLog implements Closeable {
+    static final int RECORD_SIZE = 24;
+    private static final int MAGIC = 0x4F534C47;
+    private static final int SNAPSHOT_MAGIC = 0x4F53534E;
+    private static final int SNAPSHOT_HEADER = 4 + 8 + 4 + 4;
+    // 每次映射 2M 条记录（48MB）的日志窗口，写满后映射下一段；窗口大小是记录长度的整数倍，记录不会跨窗口
+    private static final long CHUNK_SIZE = RECORD_SIZE * (1L << 21);
+    static final String LOG_FILE = "order-state.log";
+    static final String SNAPSHOT_FILE = "order-state.snapshot";
+
+    private final Path dir;
+    private final FileChannel channel;
+    private MappedByteBuffer chunk;
+    private long chunkBase;
+    private long records;
+    // 自动快照：每追加 snapshotEvery 条记录，由后台线程对 engine 做一次快照；上一次还没做完就跳过
+    private OrderStateEngine engine;
+    private long snapshotEvery;
+    private ExecutorService snapshotExecutor;
+    private final AtomicBoolean snapshotPending = new AtomicBoolean();
+    // 串行化快照文件的写入（手动快照与自动快照可能同时发生）
+    private final Object snapshotLock = new Object();
+
+    private OrderStateLog(Path dir, long records) throws IOException {
+        this.dir = dir;
+        this.records = records;
+        this.channel = FileChannel.open(dir.resolve(LOG_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long position = records * RECORD_SIZE;
+        mapChunk(position - position % CHUNK_SIZE);
+    }
+
+    // 打开（或创建）目录下的日志，并恢复出状态机；恢复出的状态机已挂上本日志
+    public static Recovered recover(Path dir, int capacity) throws IOException {
+        Files.createDirectories(dir);
+        byte[] states = new byte[capacity];
+        int usedSlots = 0;
+        long records = 0;
+
+        // 1. 读快照
+        Path snapshot = dir.resolve(SNAPSHOT_FILE);
+        if (Files.exists(snapshot)) {
+            try (FileChannel in = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+                ByteBuffer header = ByteBuffer.allocate(SNAPSHOT_HEADER);
+                readFully(in, header, 0);
+                header.flip();
+                if (header.getInt() != SNAPSHOT_MAGIC) {
+                    throw new IOException("快照文件已损坏：" + snapshot);
+                }
+                records = header.getLong();
+                usedSlots = header.getInt();
+                int snapshotCapacity = header.getInt();
+                if (snapshotCapacity > capacity) {
+                    throw new IOException("快照容量 " + snapshotCapacity + " 大于当前容量 " + capacity);
+                }
+                readFully(in, ByteBuffer.wrap(states, 0, snapshotCapacity), SNAPSHOT_HEADER);
+            }
+        }
+
+        // 2. 从快照位置开始顺序扫描日志尾部
+        Path logFile = dir.resolve(LOG_FILE);
+        if (Files.exists(logFile)) {
+            try (FileChannel in = FileChannel.open(logFile, StandardOpenOption.READ)) {
+                long size = in.size();
+                long position = records * RECORD_SIZE;
+                scan:
+                while (position + RECORD_SIZE <= size) {
+                    long length = Math.min(CHUNK_SIZE, size - position);
+                    length -= length % RECORD_SIZE;
+                    MappedByteBuffer buffer = in.map(FileChannel.MapMode.READ_ONLY, position, length);
+                    for (int offset = 0; offset < length; offset += RECORD_SIZE) {
+                        if (buffer.getInt(offset + 20) != MAGIC) {
+                            break scan;
+                        }
+                        long slot = buffer.getLong(offset);
+                        if (slot < 0 || slot >= capacity) {
+                            throw new IOException("日志中的订单槽位 " + slot + " 超出容量 " + capacity);
+                        }
+                        byte to = buffer.get(offset + 17);
+                        if (to > states[(int) slot]) {
+                            states[(int) slot] = to;
+                        }
+                        if (slot >= usedSlots) {
+                            usedSlots = (int) slot + 1;
+                        }
+                        records++;
+                    }
+                    position += length;
+                }
+            }
+        }
+
+        OrderStateEngine engine = new OrderStateEngine(states, usedSlots);
+        OrderStateLog log = new OrderStateLog(dir, records);
+        engine.setJournal(log);
+        return new Recovered(engine, log);
+    }
+
+    // 开启自动快照
+    public synchronized void enableSnapshots(OrderStateEngine engine, long snapshotEvery) {
+        if (snapshotEvery <= 0) {
+            throw new IllegalArgumentException("snapshotEvery 必须大于 0");
+        }
+        this.engine = engine;
+        this.snapshotEvery = snapshotEvery;
+        if (snapshotExecutor == null) {
+            snapshotExecutor = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "order-state-snapshot");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    public synchronized void append(long slot, byte from, byte to) {
+        long position = records * RECORD_SIZE;
+        if (position + RECORD_SIZE > chunkBase + CHUNK_SIZE) {
+            mapChunk(chunkBase + CHUNK_SIZE);
+        }
+        int offset = (int) (position - chunkBase);
+        chunk.putLong(offset, slot);
+        chunk.putLong(offset + 8, System.currentTimeMillis());
+        chunk.put(offset + 16, from);
+        chunk.put(offset + 17, to);
+        chunk.putShort(offset + 18, (short) 0);
+        chunk.putInt(offset + 20, MAGIC);
+        records++;
+        if (engine != null && records % snapshotEvery == 0 && snapshotPending.compareAndSet(false, true)) {
+            OrderStateEngine target = engine;
+            snapshotExecutor.execute(() -> {
+                try {
+                    snapshot(target);
+                } catch (UncheckedIOException e) {
+                    System.out.println("自动快照失败，下次再试：" + e.getCause());
+                } finally {
+                    snapshotPending.set(false);
+                }
+            });
+        }
+    }
+
+    public synchronized long records() {
+        return records;
+    }
+
+    /**
+     * 写快照：先写临时文件再原子替换，崩溃时旧快照仍然可用。
+     * 只在读取日志位置时短暂持有日志锁；状态表先 CAS 再记日志，所以位置之前的记录都已反映在随后复制的状态表里，
+     * 复制期间新发生的流转也可能被带进快照，回放时按 max(to) 合并，结果不变。
+     */
+    public void snapshot(OrderStateEngine engine) {
+        synchronized (snapshotLock) {
+            long position;
+            synchronized (this) {
+                position = records;
+            }
+            try {
+                // 先把日志刷盘，保证快照记录的日志位置之前的内容都已落盘（fsync 同样会写回映射区的脏页）
+                channel.force(false);
+                byte[] states = engine.copyStates();
+                ByteBuffer header = ByteBuffer.allocate(SNAPSHOT_HEADER);
+                header.putInt(SNAPSHOT_MAGIC).putLong(position).putInt(engine.usedSlots()).putInt(states.length).flip();
+                Path tmp = dir.resolve(SNAPSHOT_FILE + ".tmp");
+                try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    out.write(new ByteBuffer[]{header, ByteBuffer.wrap(states)});
+                    out.force(true);
+                }
+                Files.move(tmp, dir.resolve(SNAPSHOT_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new UncheckedIOException("写订单状态快照失败", e);
+            }
+        }
+    }
+
+    public synchronized void force() {
+        chunk.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        ExecutorService executor;
+        synchronized (this) {
+            executor = snapshotExecutor;
+            engine = null;
+        }
+        // 等正在进行的自动快照写完，再关闭日志文件
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            chunk.force();
+            channel.close();
+        }
+    }
+
+    private void mapChunk(long base) {
+        try {
+            // READ_WRITE 映射会自动把文件扩展到映射区末尾，未写的部分全是 0（magic 不匹配）
+            chunk = channel.map(FileChannel.MapMode.READ_WRITE, base, CHUNK_SIZE);
+            chunkBase = base;
+        } catch (IOException e) {
+            throw new UncheckedIOException("映射订单状态日志失败", e);
+        }
+    }
+
+    private static void readFully(FileChannel in, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = in.read(buffer, position);
+            if (n < 0) {
+                throw new IOException("文件提前结束");
+            }
+            position += n;
+        }
+    }
+
+    static final class Recovered {
+        final OrderStateEngine engine;
+        final OrderStateLog log;
+
+        Recovered(OrderStateEngine engine, OrderStateLog log) {
+            this.engine = engine;
+            this.log = log;
+        }
+    }
+}
+
+// 恢复压测：写入 1000 万条流转记录，分别测“只有日志”和“快照 + 日志尾部”两种恢复耗时
+class OrderStateRecoveryBenchmark {
+    private static final int TRANSITIONS = 10_000_000;
+    private static final int TAIL_TRANSITIONS = 100_000;
+
+    public static void main(String[] args) throws IOException {
+        // 每个订单 付款 → 发货 → 收货 三次流转
+        int orders = (TRANSITIONS + 2) / 3;
+        int capacity = orders + TAIL_TRANSITIONS;
+        Path dir = Files.createTempDirectory("order-state");
+        try {
+            OrderStateLog.Recovered fresh = OrderStateLog.recover(dir, capacity);
+            OrderStateEngine engine = fresh.engine;
+            long start = System.nanoTime();
+            int written = 0;
+            while (written < TRANSITIONS) {
+                int slot = engine.allocate();
+                for (int event = OrderStateEngine.PAY; event <= OrderStateEngine.RECEIVE && written < TRANSITIONS; event++) {
+                    engine.fire(slot, event);
+                    written++;
+                }
+            }
+            fresh.log.close();
+            System.out.printf("写入 %,d 条流转（日志 %,d 条记录，含槽位分配）：%.0f ms，日志 %,d 字节%n", written, fresh.log.records(),
+                    (System.nanoTime() - start) / 1e6, Files.size(dir.resolve(OrderStateLog.LOG_FILE)));
+
+            start = System.nanoTime();
+            OrderStateLog.Recovered fromLog = OrderStateLog.recover(dir, capacity);
+            System.out.printf("仅日志恢复：%.0f ms，订单数 %,d，回放记录 %,d%n",
+                    (System.nanoTime() - start) / 1e6, fromLog.engine.usedSlots(), fromLog.log.records());
+            boolean same = Arrays.equals(engine.copyStates(), fromLog.engine.copyStates());
+
+            // 做一次快照，之后再写 10 万条，模拟“快照 + 少量日志尾部”的常见重启场景
+            fromLog.log.snapshot(fromLog.engine);
+            for (int i = 0; i < TAIL_TRANSITIONS; i++) {
+                fromLog.engine.fire(fromLog.engine.allocate(), OrderStateEngine.PAY);
+            }
+            byte[] expected = fromLog.engine.copyStates();
+            fromLog.log.close();
+
+            start = System.nanoTime();
+            OrderStateLog.Recovered fromSnapshot = OrderStateLog.recover(dir, capacity);
+            System.out.printf("快照 + 日志尾部恢复：%.0f ms，订单数 %,d%n",
+                    (System.nanoTime() - start) / 1e6, fromSnapshot.engine.usedSlots());
+            fromSnapshot.log.close();
+            System.out.println("恢复结果一致：" + (same && Arrays.equals(expected, fromSnapshot.engine.copyStates())));
+        } finally {
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(dir);
+        }
+    }
+}
@@ -1,5 +1,10 @@
 package Action.State;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
 // 1. 抽象状态：订单状态
 interface OrderState {
     void pay(OrderContext context);
@@ -10,16 +15,32 @@ interface OrderState {
 // 2. 上下文：订单上下文
 class OrderContext {
     private OrderState currentState;
+    // 可选：状态表，挂了日志的状态表会记下每次流转，重启后可据此恢复订单状态
+    private final OrderStateEngine engine;
+    private final int slot;
 
     public OrderContext() {
+        this(null);
+    }
+
+    public OrderContext(OrderStateEngine engine) {
         // 初始状态：待付款
         this.currentState = new WaitPayState();
+        this.engine = engine;
+        this.slot = engine == null ? -1 : engine.allocate();
     }
 
     public void setState(OrderState state) {
+        if (engine != null) {
+            engine.moveTo(slot, OrderStateEngine.codeOf(currentState), OrderStateEngine.codeOf(state));
+        }
         this.currentState = state;
     }
 
+    public int getSlot() {
+        return slot;
+    }
+
     // 委托给当前状态处理
     public void pay() {
         currentState.pay(this);
@@ -111,12 +132,45 @@ class FinishedState implements OrderState {
 
 // 测试类
 class StateTest {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
         OrderContext order = new OrderContext();
         // 模拟订单状态流转
         order.pay();    // 待付款 → 待发货
         order.ship();   // 待发货 → 待收货
         order.receive();// 待收货 → 已完成
         order.pay();    // 已完成，无操作
+
+        recoverFromLog();
+    }
+
+    // 带日志的订单上下文：重启后恢复出各订单状态，且已分配但未流转的槽位不会被再次分配
+    private static void recoverFromLog() throws IOException {
+        Path dir = Files.createTempDirectory("order-state-test");
+        try {
+            OrderStateLog.Recovered first = OrderStateLog.recover(dir, 16);
+            first.log.enableSnapshots(first.engine, 2);
+            OrderContext shipped = new OrderContext(first.engine);
+            shipped.pay();
+            shipped.ship();
+            OrderContext untouched = new OrderContext(first.engine);
+            first.log.close();
+
+            OrderStateLog.Recovered second = OrderStateLog.recover(dir, 16);
+            int next = second.engine.allocate();
+            second.log.close();
+            System.out.println("恢复后：订单 " + shipped.getSlot() + " 状态 " + second.engine.state(shipped.getSlot())
+                    + "，订单 " + untouched.getSlot() + " 状态 " + second.engine.state(untouched.getSlot()) + "，新分配槽位 " + next);
+            if (second.engine.state(shipped.getSlot()) != OrderStateEngine.WAIT_RECEIVE
+                    || second.engine.state(untouched.getSlot()) != OrderStateEngine.WAIT_PAY || next != 2) {
+                throw new AssertionError("日志恢复结果不正确");
+            }
+        } finally {
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(dir);
+        }
     }
 }
\ No newline at end of file
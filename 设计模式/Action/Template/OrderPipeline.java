@@ -0,0 +1,348 @@
+package Action.Template;
+
+import Action.Facade.StripedInventory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 订单处理流水线
+ *
+ * 模板方法的四个步骤各自对应一个阶段，每个阶段一个有界线程池：
+ * 同一订单的步骤仍严格按 校验 → 锁库存 → 算价 → 建单 的顺序执行，
+ * 不同订单则在各阶段之间交错重叠，吞吐随线程数扩展而不是随请求线程数扩展。
+ * 每个阶段最多容纳 线程数 + queueCapacity 个订单，名额满时提交方（上一阶段的工作线程或调用方）阻塞等待，形成逐级反压。
+ * 锁库存阶段走 lockStockAsync：秒杀订单把扣减交给合并器后立即释放阶段线程，合并扣减完成时再进入下一阶段，
+ * 少量阶段线程也能攒满一批。订单在异步等待期间一直占着本阶段的名额，结果回来后先切回本阶段的线程再继续，
+ * 合并器的定时线程只负责往本阶段队列里放一个任务（名额已占，队列不会满），不会被下游阶段的反压卡住。
+ */
+class OrderPipeline {
+    enum Stage {
+        VALIDATE("校验订单"),
+        LOCK_STOCK("锁定库存"),
+        CALCULATE_PRICE("计算价格"),
+        CREATE_ORDER("创建订单");
+
+        final String desc;
+
+        Stage(String desc) {
+            this.desc = desc;
+        }
+    }
+
+    private final ThreadPoolExecutor[] executors = new ThreadPoolExecutor[Stage.values().length];
+    private final Semaphore[] slots = new Semaphore[Stage.values().length];
+    private final LatencyHistogram[] stageLatency = new LatencyHistogram[Stage.values().length];
+    private final LatencyHistogram endToEndLatency = new LatencyHistogram();
+
+    public OrderPipeline(int threadsPerStage, int queueCapacity) {
+        if (threadsPerStage <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("threadsPerStage 和 queueCapacity 必须大于 0");
+        }
+        for (Stage stage : Stage.values()) {
+            executors[stage.ordinal()] = newStageExecutor(stage, threadsPerStage);
+            slots[stage.ordinal()] = new Semaphore(threadsPerStage + queueCapacity);
+            stageLatency[stage.ordinal()] = new LatencyHistogram();
+        }
+    }
+
+    // 默认流水线：每阶段 CPU 核数个线程，队列 1024
+    static OrderPipeline shared() {
+        return SharedHolder.INSTANCE;
+    }
+
+    public CompletableFuture<OrderResult> submit(AbstractOrderProcess process, String orderId) {
+        long start = System.nanoTime();
+        // 每一跳都由上一阶段的工作线程（第一跳由调用方）发起，只有它们会在名额满时阻塞
+        return runStage(Stage.VALIDATE, sync(() -> process.validateOrder(orderId)))
+                .thenCompose(ignored -> runStage(Stage.LOCK_STOCK, executor -> process.lockStockAsync(orderId, executor)))
+                .thenCompose(ignored -> runStage(Stage.CALCULATE_PRICE, sync(() -> process.calculatePrice(orderId))))
+                .thenCompose(ignored -> runStage(Stage.CREATE_ORDER, sync(() -> process.createOrder(orderId))))
+                .handle((ignored, error) -> {
+                    long elapsed = System.nanoTime() - start;
+                    endToEndLatency.record(elapsed);
+                    if (error == null) {
+                        return OrderResult.success(orderId, elapsed);
+                    }
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error;
+                    if (cause instanceof StageException) {
+                        StageException stageError = (StageException) cause;
+                        return OrderResult.failure(orderId, stageError.stage, stageError.getCause(), elapsed);
+                    }
+                    return OrderResult.failure(orderId, null, cause, elapsed);
+                });
+    }
+
+    public LatencyHistogram stageLatency(Stage stage) {
+        return stageLatency[stage.ordinal()];
+    }
+
+    public LatencyHistogram endToEndLatency() {
+        return endToEndLatency;
+    }
+
+    public void printStats() {
+        for (Stage stage : Stage.values()) {
+            System.out.println(stage.desc + "：" + stageLatency(stage)
+                    + "，队列积压：" + executor(stage).getQueue().size());
+        }
+        System.out.println("端到端：" + endToEndLatency);
+    }
+
+    public void shutdown() {
+        for (ThreadPoolExecutor executor : executors) {
+            executor.shutdown();
+        }
+    }
+
+    private ThreadPoolExecutor executor(Stage stage) {
+        return executors[stage.ordinal()];
+    }
+
+    // 同步阶段：在阶段线程上直接执行完
+    private static Function<Executor, CompletableFuture<Void>> sync(Runnable task) {
+        return executor -> {
+            task.run();
+            return CompletableFuture.completedFuture(null);
+        };
+    }
+
+    // 在调用线程上占一个阶段名额（名额满时阻塞），再把任务交给阶段线程池；
+    // 任务返回的 future 完成后记录耗时、释放名额，失败时标记发生在哪个阶段。
+    // 任务拿到的 executor 就是本阶段线程池，异步任务的续接动作应提交到这里
+    private CompletableFuture<Void> runStage(Stage stage, Function<Executor, CompletableFuture<Void>> task) {
+        Semaphore slot = slots[stage.ordinal()];
+        ThreadPoolExecutor executor = executor(stage);
+        try {
+            slot.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("等待流水线名额时被中断", e);
+        }
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                long begin = System.nanoTime();
+                CompletableFuture<Void> future;
+                try {
+                    future = task.apply(executor);
+                } catch (RuntimeException e) {
+                    future = CompletableFuture.failedFuture(e);
+                }
+                BiConsumer<Void, Throwable> finish = (ignored, error) -> {
+                    stageLatency[stage.ordinal()].record(System.nanoTime() - begin);
+                    slot.release();
+                    if (error == null) {
+                        result.complete(null);
+                    } else {
+                        result.completeExceptionally(new StageException(stage,
+                                error instanceof CompletionException && error.getCause() != null ? error.getCause() : error));
+                    }
+                };
+                if (future.isDone()) {
+                    future.whenComplete(finish);
+                } else {
+                    // 异步完成的线程（如合并器的定时线程）只负责把收尾动作放回本阶段队列：
+                    // 订单仍占着名额，队列容量足够，这一步不会阻塞；下一跳的反压由本阶段线程承担
+                    future.whenCompleteAsync(finish, executor);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            slot.release();
+            throw e;
+        }
+        return result;
+    }
+
+    // 队列本身不设上限：进入队列的任务数已经被阶段名额限制在 线程数 + queueCapacity 以内
+    private static ThreadPoolExecutor newStageExecutor(Stage stage, int threads) {
+        AtomicInteger seq = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "order-" + stage.name().toLowerCase() + "-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, (r, executor) -> {
+                    throw new RejectedExecutionException("订单流水线已关闭");
+                });
+    }
+
+    private static final class SharedHolder {
+        static final OrderPipeline INSTANCE = new OrderPipeline(Runtime.getRuntime().availableProcessors(), 1024);
+    }
+
+    static final class StageException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final Stage stage;
+
+        StageException(Stage stage, Throwable cause) {
+            super(stage.desc + "失败", cause);
+            this.stage = stage;
+        }
+    }
+}
+
+// 订单处理结果
+class OrderResult {
+    private final String orderId;
+    private final boolean success;
+    private final OrderPipeline.Stage failedStage;
+    private final Throwable error;
+    private final long elapsedNanos;
+
+    private OrderResult(String orderId, boolean success, OrderPipeline.Stage failedStage, Throwable error, long elapsedNanos) {
+        this.orderId = orderId;
+        this.success = success;
+        this.failedStage = failedStage;
+        this.error = error;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    static OrderResult success(String orderId, long elapsedNanos) {
+        return new OrderResult(orderId, true, null, null, elapsedNanos);
+    }
+
+    static OrderResult failure(String orderId, OrderPipeline.Stage failedStage, Throwable error, long elapsedNanos) {
+        return new OrderResult(orderId, false, failedStage, error, elapsedNanos);
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public OrderPipeline.Stage getFailedStage() {
+        return failedStage;
+    }
+
+    public Throwable getError() {
+        return error;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "OrderResult{" +
+                "orderId='" + orderId + '\'' +
+                ", success=" + success +
+                (success ? "" : ", failedStage=" + failedStage + ", error=" + error) +
+                ", elapsed=" + elapsedNanos / 1000 + "us" +
+                '}';
+    }
+}
+
+// 测试类：多个订单并发走流水线
+class OrderPipelineTest {
+    public static void main(String[] args) throws InterruptedException {
+        OrderPipeline pipeline = new OrderPipeline(2, 16);
+        AbstractOrderProcess normalOrder = new NormalOrderProcess();
+
+        List<CompletableFuture<OrderResult>> futures = new ArrayList<>();
+        for (int i = 1; i <= 8; i++) {
+            futures.add(normalOrder.processOrderAsync(String.format("ORD%03d", i), pipeline));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+
+        System.out.println();
+        for (CompletableFuture<OrderResult> future : futures) {
+            System.out.println(future.join());
+        }
+        pipeline.printStats();
+
+        // 秒杀：20 个订单抢 10 件库存，售罄的订单在锁库存阶段失败，不会建单
+        System.out.println();
+        StripedInventory inventory = new StripedInventory(16);
+        inventory.initStock("SKU001", 10);
+        AtomicInteger created = new AtomicInteger();
+        AbstractOrderProcess seckillOrder = new SeckillOrderProcess(inventory, "SKU001") {
+            @Override
+            protected void createOrder(String orderId) {
+                super.createOrder(orderId);
+                created.incrementAndGet();
+            }
+        };
+        List<CompletableFuture<OrderResult>> seckill = new ArrayList<>();
+        for (int i = 1; i <= 20; i++) {
+            seckill.add(seckillOrder.processOrderAsync(String.format("SEC%03d", i), pipeline));
+        }
+        CompletableFuture.allOf(seckill.toArray(new CompletableFuture<?>[0])).join();
+        int success = 0;
+        for (CompletableFuture<OrderResult> future : seckill) {
+            OrderResult result = future.join();
+            if (result.isSuccess()) {
+                success++;
+            } else if (result.getFailedStage() != OrderPipeline.Stage.LOCK_STOCK || !(result.getError() instanceof SoldOutException)) {
+                throw new AssertionError("售罄订单应在锁库存阶段失败：" + result);
+            }
+        }
+        System.out.println("秒杀成功 " + success + " 单，建单 " + created.get() + " 次，剩余库存 " + inventory.available("SKU001"));
+        if (success != 10 || created.get() != 10) {
+            throw new AssertionError("只有抢到库存的订单才能建单");
+        }
+        pipeline.shutdown();
+
+        congestedPipelineDoesNotStallBatcherTimer();
+    }
+
+    // 算价阶段很慢、名额被占满时，合并器共用的定时线程不能被下游反压卡住，其他合并器照常按窗口提交
+    private static void congestedPipelineDoesNotStallBatcherTimer() throws InterruptedException {
+        OrderPipeline pipeline = new OrderPipeline(1, 1);
+        StripedInventory inventory = new StripedInventory(16);
+        inventory.initStock("SKU002", 100);
+        inventory.initStock("SKU003", 1);
+        CountDownLatch release = new CountDownLatch(1);
+        AbstractOrderProcess slowPricing = new SeckillOrderProcess(inventory, "SKU002") {
+            @Override
+            protected void calculatePrice(String orderId) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        List<CompletableFuture<OrderResult>> futures = new ArrayList<>();
+        Thread producer = new Thread(() -> {
+            for (int i = 1; i <= 8; i++) {
+                futures.add(slowPricing.processOrderAsync(String.format("SLOW%03d", i), pipeline));
+            }
+        });
+        producer.setDaemon(true);
+        producer.start();
+        Thread.sleep(200);
+
+        // 批次大小 64 攒不满，只能靠定时线程按窗口提交
+        StockDeductBatcher other = new StockDeductBatcher(inventory, 64, 200);
+        long begin = System.nanoTime();
+        boolean got = other.submit("SKU003").orTimeout(1, TimeUnit.SECONDS).join();
+        long elapsedMillis = (System.nanoTime() - begin) / 1_000_000;
+        release.countDown();
+        producer.join();
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        pipeline.shutdown();
+        System.out.println("流水线拥塞时其他合并器等待 " + elapsedMillis + "ms，扣减结果：" + got);
+        if (!got) {
+            throw new AssertionError("定时线程被流水线反压卡住");
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package Action.Template;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * 限流器（算法说明见 场景/设计限流器_代码篇.md）
+ *
+ * 笔记里的实现都只有一个全局原子变量，每次检查都 CAS 同一个缓存行，
+ * 10 万+/秒时限流器本身就成了热点。这里的实现把总配额拆到多个分片，
+ * 线程按 id 落到固定分片上各自 CAS，本分片配额用完再去别的分片借，总量仍然守恒。
+ */
+public interface RateLimiter {
+    boolean tryAcquire();
+}
+
+/**
+ * 分片令牌桶，用 GCRA（通用信元速率算法）表示：每个分片只存一个“理论到达时间” tat，
+ * 桶里的令牌数 = (now + burst × interval - tat) / interval，补充令牌和扣减合并成一次 CAS。
+ */
+class StripedTokenBucketLimiter implements RateLimiter {
+    private static final int PAD = 16;
+
+    private final AtomicLongArray tat;
+    private final int stripes;
+    private final long intervalNanos;
+    private final long burstNanos;
+
+    // permitsPerSecond：总速率；burst：总桶容量（允许的突发量）
+    public StripedTokenBucketLimiter(double permitsPerSecond, int burst, int stripes) {
+        if (permitsPerSecond <= 0 || burst < stripes || stripes <= 0) {
+            throw new IllegalArgumentException("速率必须大于 0，桶容量不能小于分片数");
+        }
+        this.stripes = stripes;
+        this.intervalNanos = (long) (1e9 * stripes / permitsPerSecond);
+        this.burstNanos = intervalNanos * (burst / stripes);
+        this.tat = new AtomicLongArray(stripes * PAD);
+        long now = System.nanoTime();
+        for (int i = 0; i < stripes; i++) {
+            // tat = now 表示桶是满的
+            tat.set(i * PAD, now);
+        }
+    }
+
+    @Override
+    public boolean tryAcquire() {
+        long now = System.nanoTime();
+        int home = Stripes.home(stripes);
+        for (int i = 0; i < stripes; i++) {
+            if (tryAcquire((home + i) % stripes, now)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean tryAcquire(int stripe, long now) {
+        int index = stripe * PAD;
+        while (true) {
+            long current = tat.get(index);
+            long next = Math.max(current, now) + intervalNanos;
+            if (next - now > burstNanos) {
+                return false;
+            }
+            if (tat.compareAndSet(index, current, next)) {
+                return true;
+            }
+        }
+    }
+}
+
+/**
+ * 分片滑动窗口计数器：用“上一窗口计数 × 未滑出比例 + 当前窗口计数”估算滑动窗口内的请求数，
+ * 每个分片只有一个 long：窗口序号(22 位) | 上一窗口计数(21 位) | 当前窗口计数(21 位)，一次 CAS 完成滚动和计数。
+ */
+class StripedSlidingWindowLimiter implements RateLimiter {
+    private static final int PAD = 16;
+    private static final int COUNT_BITS = 21;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    // 窗口序号只保留 22 位，连续 2^22 个窗口没有请求才可能把旧状态误认为当前窗口
+    private static final long WINDOW_MASK = (1L << 22) - 1;
+
+    private final AtomicLongArray state;
+    private final int stripes;
+    private final long windowNanos;
+    private final long limitPerStripe;
+    private final long origin = System.nanoTime();
+
+    // 任意 windowMillis 长的滑动窗口内最多放行约 limit 个请求
+    public StripedSlidingWindowLimiter(long limit, long windowMillis, int stripes) {
+        if (stripes <= 0 || limit < stripes || limit / stripes > COUNT_MASK) {
+            throw new IllegalArgumentException("每个分片的配额必须在 1 ~ " + COUNT_MASK + " 之间");
+        }
+        this.stripes = stripes;
+        this.windowNanos = windowMillis * 1_000_000;
+        this.limitPerStripe = limit / stripes;
+        this.state = new AtomicLongArray(stripes * PAD);
+    }
+
+    @Override
+    public boolean tryAcquire() {
+        long elapsed = System.nanoTime() - origin;
+        int home = Stripes.home(stripes);
+        for (int i = 0; i < stripes; i++) {
+            if (tryAcquire(((home + i) % stripes) * PAD, elapsed)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean tryAcquire(int index, long elapsed) {
+        while (true) {
+            long window = (elapsed / windowNanos) & WINDOW_MASK;
+            long current = state.get(index);
+            long stateWindow = current >>> (2 * COUNT_BITS);
+            long previous = (current >>> COUNT_BITS) & COUNT_MASK;
+            long count = current & COUNT_MASK;
+            // 窗口序号会回绕，按差值判断先后：差值超过一半说明分片已经在更新的窗口里
+            long ahead = (window - stateWindow) & WINDOW_MASK;
+            if (ahead > WINDOW_MASK / 2) {
+                // 本线程取时间后被挂起，别的线程已经把分片滚到了后面的窗口：只允许向前滚动，重新取时间再试
+                elapsed = System.nanoTime() - origin;
+                continue;
+            }
+            if (ahead != 0) {
+                // 滚动：紧挨着的上一个窗口保留计数，更早的窗口清零
+                previous = ahead == 1 ? count : 0;
+                count = 0;
+            }
+            // 当前窗口已过去的比例，上一窗口只按剩余比例计入
+            double remainingOfPrevious = 1 - (double) (elapsed % windowNanos) / windowNanos;
+            if (previous * remainingOfPrevious + count + 1 > limitPerStripe) {
+                return false;
+            }
+            long next = (window << (2 * COUNT_BITS)) | (previous << COUNT_BITS) | (count + 1);
+            if (state.compareAndSet(index, current, next)) {
+                return true;
+            }
+        }
+    }
+}
+
+/**
+ * 按 key（用户）限流：每个用户一个 GCRA 令牌桶，只占一个 AtomicLong
+ * 用户数严格不超过 maxKeys：新用户到来且已满时，从上次停下的位置往后抽查一小批用户（不扫全表），
+ * 清掉其中桶已满（长时间没请求）的用户，桶满的状态和“从没来过”等价，删掉不影响限流结果；
+ * 抽查的一批里没有空闲用户时，淘汰其中最久没请求的那个（近似 LRU）。
+ */
+class KeyedRateLimiter {
+    // 每次淘汰最多抽查的用户数
+    private static final int EVICT_SAMPLE = 16;
+
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final int maxKeys;
+    // 抽查游标：跨调用保留，轮流抽查整张表，而不是每次都从表头开始
+    private Iterator<Map.Entry<String, AtomicLong>> evictCursor;
+
+    public KeyedRateLimiter(double permitsPerSecond, int burst, int maxKeys) {
+        if (maxKeys <= 0) {
+            throw new IllegalArgumentException("maxKeys 必须大于 0");
+        }
+        this.intervalNanos = (long) (1e9 / permitsPerSecond);
+        this.burstNanos = intervalNanos * burst;
+        this.maxKeys = maxKeys;
+    }
+
+    public boolean tryAcquire(String key) {
+        long now = System.nanoTime();
+        AtomicLong tat = buckets.get(key);
+        if (tat == null) {
+            tat = admit(key, now);
+        }
+        while (true) {
+            long current = tat.get();
+            long next = Math.max(current, now) + intervalNanos;
+            if (next - now > burstNanos) {
+                return false;
+            }
+            if (tat.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    // 新用户入表：插入与淘汰都在这把锁里，已有用户的限流判断不受影响
+    private synchronized AtomicLong admit(String key, long now) {
+        AtomicLong tat = buckets.get(key);
+        if (tat != null) {
+            return tat;
+        }
+        while (buckets.size() >= maxKeys) {
+            evictSample(now);
+        }
+        tat = new AtomicLong(now);
+        buckets.put(key, tat);
+        return tat;
+    }
+
+    // 至少淘汰一个用户：抽查到的空闲用户全部清掉，一个都没有就淘汰抽查中 tat 最小的
+    private void evictSample(long now) {
+        Map.Entry<String, AtomicLong> oldest = null;
+        boolean evicted = false;
+        for (int i = 0; i < EVICT_SAMPLE; i++) {
+            if (evictCursor == null || !evictCursor.hasNext()) {
+                evictCursor = buckets.entrySet().iterator();
+                if (!evictCursor.hasNext()) {
+                    return;
+                }
+            }
+            Map.Entry<String, AtomicLong> entry = evictCursor.next();
+            if (entry.getValue().get() - now <= 0) {
+                evicted |= buckets.remove(entry.getKey(), entry.getValue());
+            } else if (oldest == null || entry.getValue().get() - oldest.getValue().get() < 0) {
+                oldest = entry;
+            }
+        }
+        if (!evicted && oldest != null) {
+            buckets.remove(oldest.getKey(), oldest.getValue());
+        }
+    }
+}
+
+// 线程到分片的映射：同一线程总落在同一分片，减少缓存行在核间来回
+final class Stripes {
+    private Stripes() {
+    }
+
+    static int home(int stripes) {
+        long id = Thread.currentThread().getId();
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> 33) % stripes;
+    }
+}
+
+// 测试类：公平性与限流精度
+class RateLimiterFairnessTest {
+    public static void main(String[] args) throws InterruptedException {
+        // 1. 全局限流精度：8 个线程持续抢 1 秒，放行数应接近 速率 + 突发
+        // 滑动窗口按“上一窗口均匀分布”估算，突发集中在上一窗口开头时会多放行，所以现用现建、与压测起点对齐
+        List<Supplier<RateLimiter>> limiters = List.of(
+                () -> new StripedTokenBucketLimiter(20_000, 1_000, 8),
+                () -> new StripedSlidingWindowLimiter(20_000, 1000, 8));
+        for (Supplier<RateLimiter> factory : limiters) {
+            RateLimiter limiter = factory.get();
+            long[] accepted = hammer(limiter, 8, 1000);
+            long total = 0, min = Long.MAX_VALUE, max = 0;
+            for (long a : accepted) {
+                total += a;
+                min = Math.min(min, a);
+                max = Math.max(max, a);
+            }
+            System.out.printf("%s：1 秒放行 %d（期望约 20000~21000），各线程最少 %d / 最多 %d%n",
+                    limiter.getClass().getSimpleName(), total, min, max);
+            check(total >= 18_000 && total <= 22_000, "放行总数偏离配额过多");
+        }
+
+        // 2. 用户间公平：1 个刷单用户开 4 个线程狂刷，20 个普通用户各自每 50ms 请求一次
+        // 用户限额 30 次/秒（突发 5），普通用户 20 次/秒不受影响；全局 1000 次/秒
+        KeyedRateLimiter perUser = new KeyedRateLimiter(30, 5, 10_000);
+        RateLimiter global = new StripedTokenBucketLimiter(1000, 100, 4);
+        long[] greedy = new long[1];
+        long[] normalAccepted = new long[20];
+        long[] normalSent = new long[20];
+        long deadline = System.nanoTime() + 1_000_000_000L;
+        Thread[] threads = new Thread[24];
+        for (int t = 0; t < 4; t++) {
+            threads[t] = new Thread(() -> {
+                long local = 0;
+                while (System.nanoTime() < deadline) {
+                    if (perUser.tryAcquire("greedy") && global.tryAcquire()) {
+                        local++;
+                    }
+                }
+                synchronized (greedy) {
+                    greedy[0] += local;
+                }
+            });
+        }
+        for (int u = 0; u < 20; u++) {
+            int user = u;
+            threads[4 + u] = new Thread(() -> {
+                while (System.nanoTime() < deadline) {
+                    normalSent[user]++;
+                    if (perUser.tryAcquire("U" + user) && global.tryAcquire()) {
+                        normalAccepted[user]++;
+                    }
+                    sleep(50);
+                }
+            });
+        }
+        for (Thread t : threads) {
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        long sent = 0, ok = 0;
+        for (int u = 0; u < 20; u++) {
+            sent += normalSent[u];
+            ok += normalAccepted[u];
+        }
+        System.out.printf("刷单用户放行 %d 次（用户限额约 35）；普通用户放行 %d / %d%n", greedy[0], ok, sent);
+        check(greedy[0] <= 40, "刷单用户突破了用户限额");
+        check(ok >= sent * 0.9, "普通用户被刷单用户挤占");
+
+        // 3. 用户数上限：10 万个各请求一次的新用户（桶都不空闲），表大小始终不超过 maxKeys，且每次淘汰只抽查一小批
+        KeyedRateLimiter capped = new KeyedRateLimiter(1, 1, 1000);
+        long t0 = System.nanoTime();
+        for (int i = 0; i < 100_000; i++) {
+            capped.tryAcquire("K" + i);
+            check(capped.size() <= 1000, "用户数超过了 maxKeys");
+        }
+        System.out.printf("10 万个新用户入表 %.1f ms，表大小 %d%n", (System.nanoTime() - t0) / 1e6, capped.size());
+        System.out.println("公平性测试通过");
+    }
+
+    static long[] hammer(RateLimiter limiter, int threads, long millis) throws InterruptedException {
+        long[] accepted = new long[threads];
+        long deadline = System.nanoTime() + millis * 1_000_000;
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            workers[t] = new Thread(() -> {
+                long local = 0;
+                while (System.nanoTime() < deadline) {
+                    if (limiter.tryAcquire()) {
+                        local++;
+                    }
+                }
+                accepted[id] = local;
+            });
+            workers[t].start();
+        }
+        for (Thread w : workers) {
+            w.join();
+        }
+        return accepted;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}
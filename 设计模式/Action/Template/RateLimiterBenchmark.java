@@ -0,0 +1,56 @@
+package Action.Template;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 限流器吞吐压测：每秒能做多少次 tryAcquire 检查
+ *
+ * 对比笔记里的单原子变量实现（分片数 = 1）与分片实现，配额设得很大以测纯检查开销，
+ * 再把配额设小测“大部分被拒绝”时的开销（拒绝路径要扫一遍分片）。
+ * 仓库没有引入 JMH，这里用预热 + System.nanoTime 计时，结果只看量级。
+ */
+class RateLimiterBenchmark {
+    private static final long DURATION_MILLIS = 500;
+
+    public static void main(String[] args) throws InterruptedException {
+        int[] threadCounts = {1, 4, 16};
+        for (int round = 0; round < 2; round++) {
+            System.out.println(round == 0 ? "预热" : "正式");
+            for (int threads : threadCounts) {
+                run("令牌桶  单分片  放行为主", new StripedTokenBucketLimiter(1e9, 1_000_000, 1), threads);
+                run("令牌桶  16分片  放行为主", new StripedTokenBucketLimiter(1e9, 1_000_000, 16), threads);
+                run("令牌桶  16分片  拒绝为主", new StripedTokenBucketLimiter(1000, 100, 16), threads);
+                run("滑动窗口 单分片 放行为主", new StripedSlidingWindowLimiter(2_000_000, 1000, 1), threads);
+                run("滑动窗口 16分片 放行为主", new StripedSlidingWindowLimiter(30_000_000, 1000, 16), threads);
+                run("滑动窗口 16分片 拒绝为主", new StripedSlidingWindowLimiter(1000, 1000, 16), threads);
+            }
+        }
+    }
+
+    private static void run(String name, RateLimiter limiter, int threads) throws InterruptedException {
+        LongAdder checks = new LongAdder();
+        LongAdder accepted = new LongAdder();
+        CountDownLatch done = new CountDownLatch(threads);
+        long deadline = System.nanoTime() + DURATION_MILLIS * 1_000_000;
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                long n = 0, ok = 0;
+                while (System.nanoTime() < deadline) {
+                    for (int i = 0; i < 1000; i++) {
+                        if (limiter.tryAcquire()) {
+                            ok++;
+                        }
+                    }
+                    n += 1000;
+                }
+                checks.add(n);
+                accepted.add(ok);
+                done.countDown();
+            }).start();
+        }
+        done.await();
+        System.out.printf("  %-16s %2d 线程：%,12.0f 次检查/秒，放行 %,d%n",
+                name, threads, checks.sum() * 1000.0 / DURATION_MILLIS, accepted.sum());
+    }
+}
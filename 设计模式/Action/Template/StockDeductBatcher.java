@@ -0,0 +1,137 @@
+package Action.Template;
+
+import Action.Facade.StripedInventory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 热点 SKU 扣减合并器（组提交）
+ *
+ * 同一个 SKU 的扣减请求先进入队列，攒够 maxBatchSize 个或等满 windowMicros 微秒后，
+ * 合并成一次 deductUpTo(n) 扣减，再按入队顺序逐个通知调用方：前 got 个成功，其余售罄。
+ * 对应秒杀笔记里“合并热点行更新”的思路：N 次扣减只打一次库存。
+ * 所有合并器共用一个守护线程做窗口定时，创建合并器不会额外起线程。
+ */
+class StockDeductBatcher {
+    private final StripedInventory inventory;
+    private final int maxBatchSize;
+    private final long windowMicros;
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "stock-deduct-batcher");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final ConcurrentHashMap<String, SkuBatch> batches = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    public StockDeductBatcher(StripedInventory inventory, int maxBatchSize, long windowMicros) {
+        if (maxBatchSize <= 0 || windowMicros < 0) {
+            throw new IllegalArgumentException("maxBatchSize 必须大于 0，windowMicros 不能为负数");
+        }
+        this.inventory = inventory;
+        this.maxBatchSize = maxBatchSize;
+        this.windowMicros = windowMicros;
+    }
+
+    // 提交一次扣减 1 件的请求，future 结果：true 抢到，false 售罄
+    public CompletableFuture<Boolean> submit(String skuId) {
+        if (closed) {
+            throw new IllegalStateException("扣减合并器已关闭");
+        }
+        SkuBatch batch = batches.computeIfAbsent(skuId, SkuBatch::new);
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        batch.queue.offer(future);
+        if (batch.pending.incrementAndGet() >= maxBatchSize) {
+            // 攒满一批：由当前调用线程直接提交，不再等时间窗口
+            flush(batch);
+        } else {
+            scheduleFlush(batch);
+        }
+        return future;
+    }
+
+    // 关闭后不再接受新请求，已排队的请求立即提交（共用的定时线程不随之关闭）
+    public void shutdown() {
+        closed = true;
+        for (SkuBatch batch : batches.values()) {
+            flush(batch);
+        }
+    }
+
+    private void flush(SkuBatch batch) {
+        List<CompletableFuture<Boolean>> drained = new ArrayList<>(maxBatchSize);
+        CompletableFuture<Boolean> future;
+        while (drained.size() < maxBatchSize && (future = batch.queue.poll()) != null) {
+            drained.add(future);
+        }
+        if (drained.isEmpty()) {
+            return;
+        }
+        batch.pending.addAndGet(-drained.size());
+        // 合并扣减：一次 CAS 扣减 n 件，库存不足时只扣到 0
+        long got = inventory.deductUpTo(batch.skuId, drained.size());
+        for (int i = 0; i < drained.size(); i++) {
+            drained.get(i).complete(i < got);
+        }
+        // 剩余请求不足一批：补一个定时器，避免被遗漏
+        if (batch.pending.get() > 0) {
+            scheduleFlush(batch);
+        }
+    }
+
+    // 每个 SKU 同一时刻最多挂一个窗口定时器
+    private void scheduleFlush(SkuBatch batch) {
+        if (batch.scheduled.compareAndSet(false, true)) {
+            TIMER.schedule(() -> {
+                batch.scheduled.set(false);
+                flush(batch);
+            }, windowMicros, TimeUnit.MICROSECONDS);
+        }
+    }
+
+    private static final class SkuBatch {
+        final String skuId;
+        final ConcurrentLinkedQueue<CompletableFuture<Boolean>> queue = new ConcurrentLinkedQueue<>();
+        final AtomicInteger pending = new AtomicInteger();
+        final AtomicBoolean scheduled = new AtomicBoolean();
+
+        SkuBatch(String skuId) {
+            this.skuId = skuId;
+        }
+    }
+}
+
+// 测试类：100 个并发买家抢 10 件库存
+class StockDeductBatcherTest {
+    public static void main(String[] args) throws InterruptedException {
+        StripedInventory inventory = new StripedInventory(16);
+        inventory.initStock("SKU001", 10);
+        StockDeductBatcher batcher = new StockDeductBatcher(inventory, 32, 200);
+
+        int buyers = 100;
+        AtomicInteger success = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(buyers);
+        for (int i = 0; i < buyers; i++) {
+            new Thread(() -> {
+                if (batcher.submit("SKU001").join()) {
+                    success.incrementAndGet();
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+        batcher.shutdown();
+        System.out.println("抢购成功：" + success.get() + "，剩余库存：" + inventory.available("SKU001"));
+    }
+}
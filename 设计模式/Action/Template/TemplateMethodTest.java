@@ -1,5 +1,12 @@
 package Action.Template;
 
+import Action.Facade.StripedInventory;
+import Creator.Singleton.OrderIds;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
 // 1. 抽象类：订单处理模板
 abstract class AbstractOrderProcess {
     // 模板方法：定义算法骨架（final防止子类修改）
@@ -12,6 +19,22 @@ abstract class AbstractOrderProcess {
         System.out.println("=== 订单处理完成：" + orderId + " ===");
     }
 
+    // 由发号器生成订单号后处理，返回生成的订单号
+    public final String processOrder() {
+        String orderId = OrderIds.next();
+        processOrder(orderId);
+        return orderId;
+    }
+
+    // 异步模板方法：步骤顺序不变，每个步骤作为流水线的一个阶段，在对应的有界线程池上执行
+    public final CompletableFuture<OrderResult> processOrderAsync(String orderId) {
+        return processOrderAsync(orderId, OrderPipeline.shared());
+    }
+
+    public final CompletableFuture<OrderResult> processOrderAsync(String orderId, OrderPipeline pipeline) {
+        return pipeline.submit(this, orderId);
+    }
+
     // 具体步骤：公共逻辑，父类实现
     protected void validateOrder(String orderId) {
         System.out.println("校验订单：" + orderId);
@@ -27,6 +50,14 @@ abstract class AbstractOrderProcess {
 
     // 抽象步骤：可变逻辑，子类实现
     protected abstract void lockStock(String orderId);
+
+    // 流水线中的锁库存步骤：默认直接在锁库存阶段的线程上执行 lockStock；
+    // 需要等待外部结果（如合并扣减）的子类可以覆盖，返回 future 后不再占用阶段线程。
+    // 拿到结果后的处理要提交到 stageExecutor（锁库存阶段的线程池），不要在外部组件的线程上执行
+    protected CompletableFuture<Void> lockStockAsync(String orderId, Executor stageExecutor) {
+        lockStock(orderId);
+        return CompletableFuture.completedFuture(null);
+    }
 }
 
 // 2. 具体子类：普通订单处理
@@ -39,9 +70,75 @@ class NormalOrderProcess extends AbstractOrderProcess {
 
 // 2. 具体子类：秒杀订单处理
 class SeckillOrderProcess extends AbstractOrderProcess {
+    private final StripedInventory inventory;
+    private final StockDeductBatcher batcher;
+    private final String skuId;
+
+    public SeckillOrderProcess(StripedInventory inventory, String skuId) {
+        // 默认：最多 64 个请求合并一批，窗口 200 微秒
+        this(inventory, new StockDeductBatcher(inventory, 64, 200), skuId);
+    }
+
+    public SeckillOrderProcess(StripedInventory inventory, StockDeductBatcher batcher, String skuId) {
+        this.inventory = inventory;
+        this.batcher = batcher;
+        this.skuId = skuId;
+    }
+
+    // 售罄时抛出 SoldOutException，模板流程就此中止，不会再算价、建单
     @Override
     protected void lockStock(String orderId) {
-        System.out.println("秒杀订单：锁定库存（分布式锁+预扣减）");
+        // 同一热点 SKU 的扣减先合并再提交，一批请求只扣一次库存
+        onDeducted(batcher.submit(skuId).join());
+    }
+
+    // 流水线中不阻塞阶段线程等合并窗口；合并扣减完成后回到锁库存阶段的线程上处理结果，
+    // 合并器共用的定时线程只负责完成 future，不执行打印和后续阶段的提交
+    @Override
+    protected CompletableFuture<Void> lockStockAsync(String orderId, Executor stageExecutor) {
+        return batcher.submit(skuId).thenAcceptAsync(this::onDeducted, stageExecutor);
+    }
+
+    private void onDeducted(boolean success) {
+        if (!success) {
+            System.out.println("秒杀订单：库存不足，抢购失败");
+            throw new SoldOutException(skuId);
+        }
+        System.out.println("秒杀订单：锁定库存（合并预扣减），剩余：" + inventory.available(skuId));
+    }
+}
+
+// 秒杀商品售罄
+class SoldOutException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+
+    SoldOutException(String skuId) {
+        super("商品已售罄：" + skuId);
+    }
+}
+
+/**
+ * 秒杀入口：先按用户限流，再按全局限流，都通过才进入订单模板流程
+ * 被用户限流拦下的请求不消耗全局配额，单个刷单用户挤不掉其他用户的名额。
+ */
+class SeckillEntry {
+    private final AbstractOrderProcess process;
+    private final KeyedRateLimiter perUser;
+    private final RateLimiter global;
+
+    public SeckillEntry(AbstractOrderProcess process, KeyedRateLimiter perUser, RateLimiter global) {
+        this.process = process;
+        this.perUser = perUser;
+        this.global = global;
+    }
+
+    // 返回 false 表示被限流，调用方直接返回“活动太火爆，请稍后再试”；售罄时抛出 SoldOutException
+    public boolean tryProcess(String userId, String orderId) {
+        if (!perUser.tryAcquire(userId) || !global.tryAcquire()) {
+            return false;
+        }
+        process.processOrder(orderId);
+        return true;
     }
 }
 
@@ -51,11 +148,46 @@ class TemplateMethodTest {
         // 普通订单
         AbstractOrderProcess normalOrder = new NormalOrderProcess();
         normalOrder.processOrder("ORD001");
+        normalOrder.processOrder();
 
         System.out.println();
 
         // 秒杀订单
-        AbstractOrderProcess seckillOrder = new SeckillOrderProcess();
+        StripedInventory inventory = new StripedInventory(16);
+        inventory.initStock("SKU001", 10);
+        AbstractOrderProcess seckillOrder = new SeckillOrderProcess(inventory, "SKU001");
         seckillOrder.processOrder("ORD002");
+
+        System.out.println();
+
+        // 秒杀入口限流：每个用户每秒 1 次（突发 1），全局每秒 1000 次
+        SeckillEntry entry = new SeckillEntry(seckillOrder,
+                new KeyedRateLimiter(1, 1, 100_000), new StripedTokenBucketLimiter(1000, 100, 4));
+        System.out.println("U001 第一次：" + (entry.tryProcess("U001", "ORD003") ? "放行" : "限流"));
+        System.out.println("U001 立即重试：" + (entry.tryProcess("U001", "ORD004") ? "放行" : "限流"));
+
+        System.out.println();
+
+        // 售罄：库存只有 1 件，第二个订单在锁库存时中止，不会建单
+        StripedInventory scarce = new StripedInventory(16);
+        scarce.initStock("SKU002", 1);
+        AtomicInteger created = new AtomicInteger();
+        AbstractOrderProcess countingOrder = new SeckillOrderProcess(scarce, "SKU002") {
+            @Override
+            protected void createOrder(String orderId) {
+                super.createOrder(orderId);
+                created.incrementAndGet();
+            }
+        };
+        countingOrder.processOrder("ORD005");
+        try {
+            countingOrder.processOrder("ORD006");
+            throw new AssertionError("售罄后应中止下单");
+        } catch (SoldOutException e) {
+            System.out.println("ORD006：" + e.getMessage());
+        }
+        if (created.get() != 1 || scarce.available("SKU002") != 0) {
+            throw new AssertionError("售罄后不应再创建订单，实际建单 " + created.get());
+        }
     }
 }
\ No newline at end of file
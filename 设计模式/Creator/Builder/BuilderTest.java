@@ -1,5 +1,7 @@
 package Creator.Builder;
 
+import java.util.Arrays;
+
 // 测试类
 class BuilderTest {
     public static void main(String[] args) {
@@ -12,5 +14,23 @@ class BuilderTest {
                 .discount(10)
                 .build();
         System.out.println(order);
+
+        // 不传订单号：由发号器生成
+        Order generated = new Order.OrderBuilder()
+                .baseInfo("U002")
+                .addItem("商品C")
+                .build();
+        System.out.println(generated);
+
+        // 商品名与 SKU 编号是两套编号，SKU 0 不会显示成字典里的第一个商品
+        Order mixed = new Order.OrderBuilder()
+                .baseInfo("ORD003", "U003")
+                .addItem("商品A")
+                .addItem(0)
+                .build();
+        System.out.println(mixed.getItems());
+        if (!mixed.getItems().equals(Arrays.asList("商品A", "SKU0"))) {
+            throw new AssertionError("商品名与 SKU 编号混淆：" + mixed.getItems());
+        }
     }
 }
@@ -0,0 +1,44 @@
+package Creator.Builder;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 商品字典：商品名 ↔ int 商品编号
+ *
+ * 订单里只保存 int 编号，需要展示时再查回商品名，避免每个订单都各自持有一串字符串。
+ */
+class ItemDictionary {
+    static final ItemDictionary DEFAULT = new ItemDictionary();
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[64];
+    private int size;
+
+    public int idOf(String name) {
+        Integer id = ids.get(name);
+        return id != null ? id : register(name);
+    }
+
+    public String nameOf(int id) {
+        String[] snapshot = names;
+        if (id < 0 || id >= snapshot.length || snapshot[id] == null) {
+            // 未登记的字典编号（例如来自另一个进程的字典）
+            return "未知商品#" + id;
+        }
+        return snapshot[id];
+    }
+
+    private synchronized int register(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+        }
+        names[size] = name;
+        ids.put(name, size);
+        return size++;
+    }
+}
@@ -1,13 +1,21 @@
 package Creator.Builder;
 
+import Creator.Singleton.OrderIds;
+
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 // 1. 产品：复杂订单对象
 class Order {
     private String orderId;
     private String userId;
-    private List<String> items;
+    // 商品以 int 编号紧凑存放：itemIds[itemOffset, itemOffset + itemCount)
+    // 批量构建的订单共享同一个只读数组，各自只记偏移和长度
+    // 两种编号共用一个数组、按符号位区分，互不冲突：非负数是外部 SKU 编号，负数是商品字典编号取反（见 namedItem）
+    private int[] itemIds;
+    private int itemOffset;
+    private int itemCount;
     private String address;
     private double discount;
 
@@ -15,17 +23,114 @@ class Order {
     private Order(OrderBuilder builder) {
         this.orderId = builder.orderId;
         this.userId = builder.userId;
-        this.items = builder.items;
+        // 拷贝一份，Builder 复用时不会影响已构建的订单
+        this.itemIds = Arrays.copyOf(builder.itemIds, builder.itemCount);
+        this.itemOffset = 0;
+        this.itemCount = builder.itemCount;
         this.address = builder.address;
         this.discount = builder.discount;
     }
 
+    private Order(String orderId, String userId, int[] itemIds, int itemOffset, int itemCount, String address, double discount) {
+        this.orderId = orderId;
+        this.userId = userId;
+        this.itemIds = itemIds;
+        this.itemOffset = itemOffset;
+        this.itemCount = itemCount;
+        this.address = address;
+        this.discount = discount;
+    }
+
+    // 外部 SKU 编号 → 订单商品编号
+    public static int skuItem(int skuId) {
+        if (skuId < 0) {
+            throw new IllegalArgumentException("SKU 编号不能为负数：" + skuId);
+        }
+        return skuId;
+    }
+
+    // 商品名 → 订单商品编号（登记到商品字典）
+    public static int namedItem(String name) {
+        return ~ItemDictionary.DEFAULT.idOf(name);
+    }
+
+    // 订单商品编号 → 展示名
+    static String itemName(int itemId) {
+        return itemId < 0 ? ItemDictionary.DEFAULT.nameOf(~itemId) : "SKU" + itemId;
+    }
+
+    /**
+     * 批量构建：按列传入 n 个订单的数据，商品按 CSR 方式平铺
+     * 第 i 个订单的商品为 itemIds[itemOffsets[i], itemOffsets[i + 1])，itemOffsets 长度为 n + 1，
+     * 商品编号由 skuItem / namedItem 得到。
+     * 所有订单共享传入的 itemIds 数组（调用方之后不应再修改它），每个订单只分配一个 Order 对象。
+     */
+    public static Order[] buildBatch(String[] orderIds, String[] userIds, int[] itemOffsets, int[] itemIds,
+                                     String[] addresses, double[] discounts) {
+        int n = orderIds.length;
+        if (userIds.length != n || addresses.length != n || discounts.length != n || itemOffsets.length != n + 1) {
+            throw new IllegalArgumentException("批量构建的各列长度不一致");
+        }
+        Order[] orders = new Order[n];
+        for (int i = 0; i < n; i++) {
+            int from = itemOffsets[i];
+            int to = itemOffsets[i + 1];
+            if (from < 0 || to < from || to > itemIds.length) {
+                throw new IllegalArgumentException("第 " + i + " 个订单的商品区间非法：[" + from + ", " + to + ")");
+            }
+            orders[i] = new Order(orderIds[i], userIds[i], itemIds, from, to - from, addresses[i], discounts[i]);
+        }
+        return orders;
+    }
+
+    // 反序列化等场景直接由字段构造（itemIds 归新订单所有）
+    static Order of(String orderId, String userId, int[] itemIds, String address, double discount) {
+        return new Order(orderId, userId, itemIds, 0, itemIds.length, address, discount);
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    // 第 index 个商品的编号（skuItem / namedItem 的编码）
+    public int getItemId(int index) {
+        if (index < 0 || index >= itemCount) {
+            throw new IndexOutOfBoundsException("商品下标越界：" + index);
+        }
+        return itemIds[itemOffset + index];
+    }
+
+    // 物化商品名列表（展示用）
+    public List<String> getItems() {
+        List<String> items = new ArrayList<>(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            items.add(itemName(itemIds[itemOffset + i]));
+        }
+        return items;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public double getDiscount() {
+        return discount;
+    }
+
     @Override
     public String toString() {
         return "订单{" +
                 "orderId='" + orderId + '\'' +
                 ", userId='" + userId + '\'' +
-                ", items=" + items +
+                ", items=" + getItems() +
                 ", address='" + address + '\'' +
                 ", discount=" + discount +
                 '}';
@@ -35,7 +140,8 @@ class Order {
     public static class OrderBuilder {
         private String orderId;
         private String userId;
-        private List<String> items = new ArrayList<>();
+        private int[] itemIds = new int[8];
+        private int itemCount;
         private String address;
         private double discount = 0;
 
@@ -46,9 +152,31 @@ class Order {
             return this;
         }
 
+        // 基础信息构建：订单号由发号器生成
+        public OrderBuilder baseInfo(String userId) {
+            return baseInfo(OrderIds.next(), userId);
+        }
+
         // 商品构建
         public OrderBuilder addItem(String item) {
-            this.items.add(item);
+            return appendItemId(namedItem(item));
+        }
+
+        // 商品构建：按外部 SKU 编号添加
+        public OrderBuilder addItem(int skuId) {
+            return appendItemId(skuItem(skuId));
+        }
+
+        // 商品构建：按已编码的订单商品编号添加（例如另一个订单的 getItemId）
+        public OrderBuilder addItemId(int itemId) {
+            return appendItemId(itemId);
+        }
+
+        private OrderBuilder appendItemId(int itemId) {
+            if (itemCount == itemIds.length) {
+                itemIds = Arrays.copyOf(itemIds, itemCount * 2);
+            }
+            itemIds[itemCount++] = itemId;
             return this;
         }
 
@@ -64,10 +192,19 @@ class Order {
             return this;
         }
 
+        // 重置后复用：保留已扩容的商品缓冲区，不产生新对象
+        public OrderBuilder reset() {
+            this.orderId = null;
+            this.userId = null;
+            this.itemCount = 0;
+            this.address = null;
+            this.discount = 0;
+            return this;
+        }
+
         // 最终构建产品
         public Order build() {
             return new Order(this);
         }
     }
 }
-
@@ -0,0 +1,103 @@
+package Creator.Builder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 100 万订单构建压测
+ *
+ * 对比三种方式：
+ * 1. 原始方式：每个订单各自 new 一个 ArrayList<String> 装商品名（模拟改造前的结构）；
+ * 2. 复用 Builder：reset() 后按商品编号添加，每个订单只分配 Order + 一个紧凑 int[]；
+ * 3. 列式批量构建：所有订单共享一个商品编号数组，每个订单只分配一个 Order。
+ */
+class OrderBuildBenchmark {
+    private static final int ORDERS = 1_000_000;
+    private static final int ITEMS_PER_ORDER = 4;
+
+    // 改造前的订单结构：每个订单各自持有一个装箱的商品名列表
+    static class LegacyOrder {
+        final String orderId;
+        final String userId;
+        final List<String> items;
+        final String address;
+        final double discount;
+
+        LegacyOrder(String orderId, String userId, List<String> items, String address, double discount) {
+            this.orderId = orderId;
+            this.userId = userId;
+            this.items = items;
+            this.address = address;
+            this.discount = discount;
+        }
+    }
+
+    public static void main(String[] args) {
+        String[] orderIds = new String[ORDERS];
+        String[] userIds = new String[ORDERS];
+        String[] addresses = new String[ORDERS];
+        double[] discounts = new double[ORDERS];
+        int[] itemOffsets = new int[ORDERS + 1];
+        // itemIndexes 是商品名下标（原始方式用），itemIds 是对应的订单商品编号
+        int[] itemIndexes = new int[ORDERS * ITEMS_PER_ORDER];
+        int[] itemIds = new int[ORDERS * ITEMS_PER_ORDER];
+        String[] itemNames = new String[1000];
+        int[] nameIds = new int[itemNames.length];
+        for (int i = 0; i < itemNames.length; i++) {
+            itemNames[i] = "商品" + i;
+            nameIds[i] = Order.namedItem(itemNames[i]);
+        }
+        for (int i = 0; i < ORDERS; i++) {
+            orderIds[i] = "ORD" + i;
+            userIds[i] = "U" + (i % 10_000);
+            addresses[i] = "北京市朝阳区";
+            discounts[i] = i % 10;
+            itemOffsets[i + 1] = itemOffsets[i] + ITEMS_PER_ORDER;
+            for (int j = 0; j < ITEMS_PER_ORDER; j++) {
+                itemIndexes[i * ITEMS_PER_ORDER + j] = (i + j) % itemNames.length;
+                itemIds[i * ITEMS_PER_ORDER + j] = nameIds[(i + j) % itemNames.length];
+            }
+        }
+
+        for (int round = 1; round <= 5; round++) {
+            // 每种方式单独计时，计时前先 GC，避免上一种方式留下的垃圾算到下一种头上
+            System.gc();
+            long t0 = System.nanoTime();
+            LegacyOrder[] legacy = new LegacyOrder[ORDERS];
+            for (int i = 0; i < ORDERS; i++) {
+                List<String> items = new ArrayList<>();
+                for (int j = itemOffsets[i]; j < itemOffsets[i + 1]; j++) {
+                    items.add(itemNames[itemIndexes[j]]);
+                }
+                legacy[i] = new LegacyOrder(orderIds[i], userIds[i], items, addresses[i], discounts[i]);
+            }
+            long legacyNanos = System.nanoTime() - t0;
+            int check = legacy[ORDERS - 1].items.size();
+            legacy = null;
+
+            System.gc();
+            t0 = System.nanoTime();
+            Order[] reused = new Order[ORDERS];
+            Order.OrderBuilder builder = new Order.OrderBuilder();
+            for (int i = 0; i < ORDERS; i++) {
+                builder.reset().baseInfo(orderIds[i], userIds[i]).address(addresses[i]).discount(discounts[i]);
+                for (int j = itemOffsets[i]; j < itemOffsets[i + 1]; j++) {
+                    builder.addItemId(itemIds[j]);
+                }
+                reused[i] = builder.build();
+            }
+            long reusedNanos = System.nanoTime() - t0;
+            check += reused[ORDERS - 1].getItemCount();
+            reused = null;
+
+            System.gc();
+            t0 = System.nanoTime();
+            Order[] batch = Order.buildBatch(orderIds, userIds, itemOffsets, itemIds, addresses, discounts);
+            long batchNanos = System.nanoTime() - t0;
+            check += batch[ORDERS - 1].getItemCount();
+
+            System.out.printf("第 %d 轮  原始 Builder: %6.1f ms   复用 Builder: %6.1f ms   列式批量: %6.1f ms   (check=%d)%n",
+                    round, legacyNanos / 1e6, reusedNanos / 1e6, batchNanos / 1e6, check);
+        }
+    }
+}
@@ -0,0 +1,417 @@
+package Creator.Builder;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * 订单二进制编解码
+ *
+ * 布局（大端）：
+ *   固定头 24 字节：magic(2) | version(1) | reserved(1) | totalLength(4) | discount(8) | itemsOffset(4) | itemCount(4)
+ *   字符串区：orderId、userId、address，各自为 varint(UTF-8 字节数 + 1) + UTF-8 字节，0 表示 null；
+ *            之后是商品名表：varint(名称个数) + 各个名称（同样的字符串格式），按在订单中首次出现的顺序排列
+ *   商品区：itemCount 个 varint，最低位是类型位：SKU 编号写 sku << 1，商品名写 (名表下标 << 1) | 1
+ * 商品字典编号只在本进程内有效，所以商品名随数据一起写出，解码时再登记到本进程的字典；
+ * 没有商品名的订单名表只占 1 字节。
+ * 编码直接写入调用方提供的 ByteBuffer，不产生中间 byte[]；
+ * 解码用 OrderFlyweight 就地读取，只有调用 toOrder() / getItemIds() 时才物化对象。
+ */
+class OrderCodec {
+    static final short MAGIC = 0x4F52;
+    static final byte VERSION = 2;
+    static final int HEADER_SIZE = 24;
+
+    private OrderCodec() {
+    }
+
+    // 编码到 buffer 当前位置，返回写入字节数；空间不足抛 BufferOverflowException，buffer 位置不变
+    public static int encode(Order order, ByteBuffer buffer) {
+        NameTable names = NameTable.of(order);
+        int itemBytes = 0;
+        for (int i = 0; i < order.getItemCount(); i++) {
+            itemBytes += varintSize(itemCode(order.getItemId(i), names));
+        }
+        int stringBytes = stringSize(order.getOrderId()) + stringSize(order.getUserId()) + stringSize(order.getAddress())
+                + NameTable.size(names);
+        int itemsOffset = HEADER_SIZE + stringBytes;
+        int totalLength = itemsOffset + itemBytes;
+        if (buffer.remaining() < totalLength) {
+            throw new BufferOverflowException();
+        }
+
+        buffer.putShort(MAGIC)
+                .put(VERSION)
+                .put((byte) 0)
+                .putInt(totalLength)
+                .putDouble(order.getDiscount())
+                .putInt(itemsOffset)
+                .putInt(order.getItemCount());
+        putString(buffer, order.getOrderId());
+        putString(buffer, order.getUserId());
+        putString(buffer, order.getAddress());
+        NameTable.put(buffer, names);
+        for (int i = 0; i < order.getItemCount(); i++) {
+            putVarint(buffer, itemCode(order.getItemId(i), names));
+        }
+        return totalLength;
+    }
+
+    // 编码后的字节数（用于预估缓冲区大小）
+    public static int encodedSize(Order order) {
+        NameTable names = NameTable.of(order);
+        int size = HEADER_SIZE + stringSize(order.getOrderId()) + stringSize(order.getUserId()) + stringSize(order.getAddress())
+                + NameTable.size(names);
+        for (int i = 0; i < order.getItemCount(); i++) {
+            size += varintSize(itemCode(order.getItemId(i), names));
+        }
+        return size;
+    }
+
+    // 订单商品编号 → 线上编码（按无符号 varint 写出）：SKU 左移一位，商品名换成名表下标后左移一位再置最低位
+    private static int itemCode(int itemId, NameTable names) {
+        return itemId >= 0 ? itemId << 1 : (names.indexOf(~itemId) << 1) | 1;
+    }
+
+    // 本条订单用到的商品名（字典编号按首次出现的顺序去重）
+    private static final class NameTable {
+        private final Map<Integer, Integer> indexes = new HashMap<>();
+        private final List<String> names = new ArrayList<>();
+
+        // 没有商品名时返回 null，纯 SKU 订单不分配名表
+        static NameTable of(Order order) {
+            NameTable table = null;
+            for (int i = 0; i < order.getItemCount(); i++) {
+                int itemId = order.getItemId(i);
+                if (itemId < 0) {
+                    if (table == null) {
+                        table = new NameTable();
+                    }
+                    int dictionaryId = ~itemId;
+                    if (!table.indexes.containsKey(dictionaryId)) {
+                        table.indexes.put(dictionaryId, table.names.size());
+                        table.names.add(ItemDictionary.DEFAULT.nameOf(dictionaryId));
+                    }
+                }
+            }
+            return table;
+        }
+
+        int indexOf(int dictionaryId) {
+            return indexes.get(dictionaryId);
+        }
+
+        static int size(NameTable table) {
+            if (table == null) {
+                return varintSize(0);
+            }
+            int size = varintSize(table.names.size());
+            for (String name : table.names) {
+                size += stringSize(name);
+            }
+            return size;
+        }
+
+        static void put(ByteBuffer buffer, NameTable table) {
+            if (table == null) {
+                putVarint(buffer, 0);
+                return;
+            }
+            putVarint(buffer, table.names.size());
+            for (String name : table.names) {
+                putString(buffer, name);
+            }
+        }
+    }
+
+    static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    static void putVarint(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    // 读取 position 处的 varint，返回值的低 32 位为数值、高 32 位为占用字节数
+    static long getVarint(ByteBuffer buffer, int position) {
+        int value = 0;
+        int shift = 0;
+        int length = 0;
+        byte b;
+        do {
+            b = buffer.get(position + length++);
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return ((long) length << 32) | (value & 0xFFFFFFFFL);
+    }
+
+    private static int stringSize(String value) {
+        if (value == null) {
+            return 1;
+        }
+        int utf8 = utf8Length(value);
+        return varintSize(utf8 + 1) + utf8;
+    }
+
+    private static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    // 手写 UTF-8 编码，直接写入 buffer，不经过 String.getBytes 的临时数组
+    private static void putString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            putVarint(buffer, 0);
+            return;
+        }
+        putVarint(buffer, utf8Length(value) + 1);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, value.charAt(++i));
+                buffer.put((byte) (0xF0 | (cp >> 18)));
+                buffer.put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+                buffer.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (cp & 0x3F)));
+            } else {
+                // 孤立代理字符按 3 字节写出，与 utf8Length 保持一致
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    static String getString(ByteBuffer buffer, int position, int utf8Length) {
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + position, utf8Length, StandardCharsets.UTF_8);
+        }
+        byte[] bytes = new byte[utf8Length];
+        for (int i = 0; i < utf8Length; i++) {
+            bytes[i] = buffer.get(position + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
+
+/**
+ * 订单享元读取器：包装一段编码后的字节，按需读取字段
+ * 一个读取器可以通过 wrap() 反复指向不同的订单，读取头部字段和遍历商品都不分配对象。
+ */
+class OrderFlyweight {
+    private ByteBuffer buffer;
+    private int offset;
+    // 名表中的商品名登记到本进程字典后得到的订单商品编号，第一次遍历商品时才解析
+    private int[] namedItems;
+
+    public OrderFlyweight wrap(ByteBuffer buffer, int offset) {
+        if (buffer.getShort(offset) != OrderCodec.MAGIC) {
+            throw new IllegalArgumentException("不是订单编码数据，offset=" + offset);
+        }
+        if (buffer.get(offset + 2) != OrderCodec.VERSION) {
+            throw new IllegalArgumentException("不支持的订单编码版本：" + buffer.get(offset + 2));
+        }
+        this.buffer = buffer;
+        this.offset = offset;
+        this.namedItems = null;
+        return this;
+    }
+
+    // 本条订单的编码长度，可用于跳到下一条：offset + totalLength()
+    public int totalLength() {
+        return buffer.getInt(offset + 4);
+    }
+
+    public double discount() {
+        return buffer.getDouble(offset + 8);
+    }
+
+    public int itemCount() {
+        return buffer.getInt(offset + 20);
+    }
+
+    public String orderId() {
+        return stringAt(0);
+    }
+
+    public String userId() {
+        return stringAt(1);
+    }
+
+    public String address() {
+        return stringAt(2);
+    }
+
+    // 顺序遍历订单商品编号（skuItem / namedItem 的编码），不物化列表；只有 SKU 的订单不分配对象
+    public void forEachItem(IntConsumer action) {
+        int position = offset + buffer.getInt(offset + 16);
+        int count = itemCount();
+        for (int i = 0; i < count; i++) {
+            long varint = OrderCodec.getVarint(buffer, position);
+            int code = (int) varint;
+            action.accept((code & 1) == 0 ? code >>> 1 : namedItem(code >>> 1));
+            position += (int) (varint >>> 32);
+        }
+    }
+
+    public int[] getItemIds() {
+        int[] ids = new int[itemCount()];
+        int[] index = {0};
+        forEachItem(id -> ids[index[0]++] = id);
+        return ids;
+    }
+
+    public Order toOrder() {
+        return Order.of(orderId(), userId(), getItemIds(), address(), discount());
+    }
+
+    private int namedItem(int index) {
+        if (namedItems == null) {
+            namedItems = readNameTable();
+        }
+        if (index >= namedItems.length) {
+            throw new IllegalArgumentException("商品名表下标越界：" + index + "，名表大小 " + namedItems.length);
+        }
+        return namedItems[index];
+    }
+
+    // 名表紧跟在三个字符串字段之后
+    private int[] readNameTable() {
+        int position = offset + OrderCodec.HEADER_SIZE;
+        for (int i = 0; i < 3; i++) {
+            long varint = OrderCodec.getVarint(buffer, position);
+            position += (int) (varint >>> 32) + Math.max(0, (int) varint - 1);
+        }
+        long countVarint = OrderCodec.getVarint(buffer, position);
+        position += (int) (countVarint >>> 32);
+        int[] items = new int[(int) countVarint];
+        for (int i = 0; i < items.length; i++) {
+            long varint = OrderCodec.getVarint(buffer, position);
+            position += (int) (varint >>> 32);
+            int length = (int) varint - 1;
+            items[i] = Order.namedItem(OrderCodec.getString(buffer, position, length));
+            position += length;
+        }
+        return items;
+    }
+
+    // 第 n 个字符串字段（跳过前面的字段，只读长度前缀）
+    private String stringAt(int n) {
+        int position = offset + OrderCodec.HEADER_SIZE;
+        for (int i = 0; ; i++) {
+            long varint = OrderCodec.getVarint(buffer, position);
+            int lengthPlusOne = (int) varint;
+            position += (int) (varint >>> 32);
+            if (i == n) {
+                return lengthPlusOne == 0 ? null : OrderCodec.getString(buffer, position, lengthPlusOne - 1);
+            }
+            position += Math.max(0, lengthPlusOne - 1);
+        }
+    }
+}
+
+// 测试类：往返编解码
+class OrderCodecTest {
+    public static void main(String[] args) {
+        Order order = new Order.OrderBuilder()
+                .baseInfo("ORD001", "U001")
+                .addItem("商品A")
+                .addItem("商品B")
+                .addItem(300)
+                .addItem(Integer.MAX_VALUE)
+                .address("北京市朝阳区 😀")
+                .discount(10)
+                .build();
+        Order empty = new Order.OrderBuilder().baseInfo("ORD002", null).build();
+
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        int first = OrderCodec.encode(order, buffer);
+        int second = OrderCodec.encode(empty, buffer);
+        check(first == OrderCodec.encodedSize(order), "encodedSize 与实际写入长度不一致");
+
+        OrderFlyweight reader = new OrderFlyweight().wrap(buffer, 0);
+        check(reader.totalLength() == first, "totalLength 不一致");
+        check("ORD001".equals(reader.orderId()) && "U001".equals(reader.userId()), "字符串字段不一致");
+        check("北京市朝阳区 😀".equals(reader.address()), "多字节 UTF-8 字段不一致");
+        check(reader.discount() == 10 && reader.itemCount() == 4, "头部字段不一致");
+        check(order.toString().equals(reader.toOrder().toString()), "往返后订单不一致");
+
+        reader.wrap(buffer, first);
+        check(reader.totalLength() == second, "第二条 totalLength 不一致");
+        check(reader.userId() == null && reader.address() == null && reader.itemCount() == 0, "null / 空字段往返失败");
+        check(empty.toString().equals(reader.toOrder().toString()), "第二条往返后订单不一致");
+
+        // SKU 编号左移一位后按无符号 varint 写出：300 → 2 字节；商品名只占 1 字节的名表下标，名称写在名表里
+        Order skuOnly = new Order.OrderBuilder().baseInfo("ORD003", "U003").addItem(300).build();
+        check(OrderCodec.encodedSize(skuOnly) == OrderCodec.HEADER_SIZE + 7 + 5 + 1 + 1 + 2, "SKU 订单编码长度不对");
+        Order named = new Order.OrderBuilder().baseInfo("ORD004", "U004")
+                .addItem("商品C").addItem(7).addItem("商品D").addItem("商品C").build();
+        ByteBuffer namedBuffer = ByteBuffer.allocate(128);
+        int namedLength = OrderCodec.encode(named, namedBuffer);
+        int nameTableBytes = 1 + (1 + "商品C".getBytes(StandardCharsets.UTF_8).length) * 2;
+        check(namedLength == OrderCodec.HEADER_SIZE + 7 + 5 + 1 + nameTableBytes + 4, "商品名订单编码长度不对");
+        OrderFlyweight namedReader = new OrderFlyweight().wrap(namedBuffer, 0);
+        check(named.getItems().equals(namedReader.toOrder().getItems()), "商品名往返失败：" + namedReader.toOrder().getItems());
+        int[] ids = namedReader.getItemIds();
+        check(ids[0] == ids[3] && ids[1] == 7 && ids[0] != ids[2], "商品编号往返失败");
+        // 解码按数据里的名称登记到本进程的字典，而不是拿编码方进程的字典编号查本地字典：
+        // 把数据里的“商品D”原地改成等长的“商品E”，解码结果随之变化
+        byte[] payload = namedBuffer.array();
+        byte[] from = "商品D".getBytes(StandardCharsets.UTF_8);
+        byte[] to = "商品E".getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i + from.length <= namedLength; i++) {
+            if (Arrays.equals(payload, i, i + from.length, from, 0, from.length)) {
+                System.arraycopy(to, 0, payload, i, to.length);
+            }
+        }
+        check("商品E".equals(namedReader.wrap(namedBuffer, 0).toOrder().getItems().get(2)), "商品名应从编码数据中读取");
+
+        try {
+            OrderCodec.encode(order, ByteBuffer.allocate(8));
+            check(false, "空间不足时应抛出 BufferOverflowException");
+        } catch (BufferOverflowException expected) {
+            // 预期
+        }
+        System.out.println("往返测试通过：" + reader.wrap(buffer, 0).toOrder());
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package Creator.Builder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 订单编解码吞吐压测：二进制编码 vs Java 序列化 vs JSON
+ *
+ * 仓库没有引入 JSON 库，这里的 JSON 基线是手写的 StringBuilder 编码 + 按字段解析，
+ * 开销与常见 JSON 库的数据绑定同一量级（都要生成 / 解析文本、转义字符串、数字与文本互转）。
+ */
+class OrderCodecBenchmark {
+    private static final int ORDERS = 100_000;
+
+    // Java 序列化基线：与 Order 字段一致的可序列化对象
+    static class SerializableOrder implements Serializable {
+        private static final long serialVersionUID = 1L;
+        String orderId;
+        String userId;
+        int[] itemIds;
+        String address;
+        double discount;
+
+        static SerializableOrder from(Order order) {
+            SerializableOrder o = new SerializableOrder();
+            o.orderId = order.getOrderId();
+            o.userId = order.getUserId();
+            o.itemIds = new int[order.getItemCount()];
+            for (int i = 0; i < o.itemIds.length; i++) {
+                o.itemIds[i] = order.getItemId(i);
+            }
+            o.address = order.getAddress();
+            o.discount = order.getDiscount();
+            return o;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Order[] orders = new Order[ORDERS];
+        Order.OrderBuilder builder = new Order.OrderBuilder();
+        for (int i = 0; i < ORDERS; i++) {
+            builder.reset().baseInfo("ORD" + i, "U" + (i % 10_000)).address("北京市朝阳区").discount(i % 10);
+            for (int j = 0; j < 5; j++) {
+                builder.addItem((i + j) % 5000);
+            }
+            orders[i] = builder.build();
+        }
+        // 带商品名的订单：5 个商品里 2 个按名称添加（共 200 种名称），名称要随数据写进名表
+        Order[] namedOrders = new Order[ORDERS];
+        for (int i = 0; i < ORDERS; i++) {
+            builder.reset().baseInfo("ORD" + i, "U" + (i % 10_000)).address("北京市朝阳区").discount(i % 10)
+                    .addItem("商品" + (i % 200)).addItem("商品" + ((i + 1) % 200));
+            for (int j = 0; j < 3; j++) {
+                builder.addItem((i + j) % 5000);
+            }
+            namedOrders[i] = builder.build();
+        }
+
+        for (int round = 1; round <= 3; round++) {
+            System.out.printf("第 %d 轮%n", round);
+            binary("二进制", orders);
+            binary("二进制+名", namedOrders);
+            javaSerialization(orders);
+            json(orders);
+        }
+    }
+
+    private static void binary(String name, Order[] orders) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(ORDERS * 128);
+        long t0 = System.nanoTime();
+        for (Order order : orders) {
+            OrderCodec.encode(order, buffer);
+        }
+        long t1 = System.nanoTime();
+        int bytes = buffer.position();
+        // 享元读取：只读头部字段和商品编号，不物化
+        OrderFlyweight reader = new OrderFlyweight();
+        long[] sum = {0};
+        for (int offset = 0; offset < bytes; offset += reader.totalLength()) {
+            reader.wrap(buffer, offset);
+            sum[0] += reader.itemCount();
+            reader.forEachItem(id -> sum[0] += id);
+        }
+        long t2 = System.nanoTime();
+        // 完整物化
+        int decoded = 0;
+        for (int offset = 0; offset < bytes; offset += reader.totalLength()) {
+            decoded += reader.wrap(buffer, offset).toOrder().getItemCount();
+        }
+        long t3 = System.nanoTime();
+        report(name, bytes, t1 - t0, t3 - t2);
+        System.out.printf("    享元只读商品：%,10.0f 条/秒 (sum=%d, decoded=%d)%n", rate(t2 - t1), sum[0], decoded);
+    }
+
+    private static void javaSerialization(Order[] orders) throws IOException, ClassNotFoundException {
+        long t0 = System.nanoTime();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(ORDERS * 256);
+        byte[][] encoded = new byte[ORDERS][];
+        for (int i = 0; i < ORDERS; i++) {
+            bytes.reset();
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeObject(SerializableOrder.from(orders[i]));
+            }
+            encoded[i] = bytes.toByteArray();
+        }
+        long t1 = System.nanoTime();
+        long total = 0;
+        int decoded = 0;
+        for (byte[] data : encoded) {
+            total += data.length;
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+                decoded += ((SerializableOrder) in.readObject()).itemIds.length;
+            }
+        }
+        long t2 = System.nanoTime();
+        report("Java序列化", total, t1 - t0, t2 - t1);
+    }
+
+    private static void json(Order[] orders) {
+        long t0 = System.nanoTime();
+        byte[][] encoded = new byte[ORDERS][];
+        StringBuilder sb = new StringBuilder(256);
+        for (int i = 0; i < ORDERS; i++) {
+            sb.setLength(0);
+            Order order = orders[i];
+            sb.append("{\"orderId\":\"").append(order.getOrderId())
+                    .append("\",\"userId\":\"").append(order.getUserId())
+                    .append("\",\"items\":[");
+            for (int j = 0; j < order.getItemCount(); j++) {
+                if (j > 0) {
+                    sb.append(',');
+                }
+                sb.append(order.getItemId(j));
+            }
+            sb.append("],\"address\":\"").append(order.getAddress())
+                    .append("\",\"discount\":").append(order.getDiscount()).append('}');
+            encoded[i] = sb.toString().getBytes(StandardCharsets.UTF_8);
+        }
+        long t1 = System.nanoTime();
+        long total = 0;
+        int decoded = 0;
+        for (byte[] data : encoded) {
+            total += data.length;
+            decoded += parseJson(new String(data, StandardCharsets.UTF_8)).getItemCount();
+        }
+        long t2 = System.nanoTime();
+        report("JSON", total, t1 - t0, t2 - t1);
+    }
+
+    // 仅支持上面生成的固定结构
+    private static Order parseJson(String json) {
+        String orderId = stringField(json, "\"orderId\":\"");
+        String userId = stringField(json, "\"userId\":\"");
+        String address = stringField(json, "\"address\":\"");
+        int itemsStart = json.indexOf("\"items\":[") + 9;
+        int itemsEnd = json.indexOf(']', itemsStart);
+        String[] parts = itemsEnd > itemsStart ? json.substring(itemsStart, itemsEnd).split(",") : new String[0];
+        int[] itemIds = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            itemIds[i] = Integer.parseInt(parts[i]);
+        }
+        int discountStart = json.indexOf("\"discount\":") + 11;
+        double discount = Double.parseDouble(json.substring(discountStart, json.indexOf('}', discountStart)));
+        return Order.of(orderId, userId, itemIds, address, discount);
+    }
+
+    private static String stringField(String json, String key) {
+        int start = json.indexOf(key) + key.length();
+        return json.substring(start, json.indexOf('"', start));
+    }
+
+    private static void report(String name, long bytes, long encodeNanos, long decodeNanos) {
+        System.out.printf("  %-8s 编码 %,10.0f 条/秒   解码 %,10.0f 条/秒   平均 %d 字节/条%n",
+                name, rate(encodeNanos), rate(decodeNanos), bytes / ORDERS);
+    }
+
+    private static double rate(long nanos) {
+        return ORDERS * 1e9 / nanos;
+    }
+}
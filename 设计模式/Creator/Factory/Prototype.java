@@ -6,7 +6,7 @@ interface Prototype {
 }
 
 // 2. 具体原型：SKU对象
-class SkuPrototype implements Prototype {
+class SkuPrototype implements Prototype, Cloneable {
     // 通用属性（SPU共享）
     private String spuId;
     private String productName;
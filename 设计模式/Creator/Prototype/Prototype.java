@@ -6,7 +6,7 @@ interface Prototype {
 }
 
 // 2. 具体原型：SKU对象
-class SkuPrototype implements Prototype {
+class SkuPrototype implements Prototype, Cloneable {
     // 通用属性（SPU共享）
     private String spuId;
     private String productName;
@@ -30,6 +30,40 @@ class SkuPrototype implements Prototype {
         this.price = price;
     }
 
+    public String getSpuId() {
+        return spuId;
+    }
+
+    public String getProductName() {
+        return productName;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public String getColor() {
+        return color;
+    }
+
+    public String getSize() {
+        return size;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    // 对象池回收复用：用另一个原型的通用属性覆盖本对象，并清空差异化属性
+    void resetFrom(SkuPrototype prototype) {
+        this.spuId = prototype.spuId;
+        this.productName = prototype.productName;
+        this.category = prototype.category;
+        this.color = null;
+        this.size = null;
+        this.price = 0;
+    }
+
     // 浅克隆实现
     @Override
     public Prototype clone() {
@@ -0,0 +1,239 @@
+package Creator.Prototype;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * 列式堆外 SKU 存储
+ *
+ * 不再为每个 SKU 建一个对象，而是按列存放在堆外 ByteBuffer 中：
+ *   spuId / 商品名 / 类目 / 颜色 / 尺码 → 字典编码后的 int（每列 4 字节）
+ *   价格 → long，单位分（8 字节）
+ * 每个 SKU 固定 28 字节且不在堆上，按价格过滤等全表扫描只是顺序读一列 long，不产生任何对象，也不给 GC 增加负担。
+ * 读取单个 SKU 时用 SkuView 视图，接口与 SkuPrototype 一致，需要时再物化成真正的 SkuPrototype。
+ * 写入为单线程，构建完成后可多线程只读扫描。
+ */
+class SkuColumnStore {
+    private final int capacity;
+    private final ByteBuffer spuIds;
+    private final ByteBuffer productNames;
+    private final ByteBuffer categories;
+    private final ByteBuffer colors;
+    private final ByteBuffer sizes;
+    private final ByteBuffer prices;
+    private final Dictionary dictionary = new Dictionary();
+    private int size;
+
+    public SkuColumnStore(int capacity) {
+        if (capacity <= 0 || capacity > Integer.MAX_VALUE / 8) {
+            throw new IllegalArgumentException("容量超出范围：" + capacity);
+        }
+        this.capacity = capacity;
+        this.spuIds = intColumn(capacity);
+        this.productNames = intColumn(capacity);
+        this.categories = intColumn(capacity);
+        this.colors = intColumn(capacity);
+        this.sizes = intColumn(capacity);
+        this.prices = ByteBuffer.allocateDirect(capacity * 8).order(ByteOrder.nativeOrder());
+    }
+
+    // 从 SkuPrototype 导入一行，返回行号
+    public int add(SkuPrototype sku) {
+        return add(sku.getSpuId(), sku.getProductName(), sku.getCategory(),
+                sku.getColor(), sku.getSize(), Math.round(sku.getPrice() * 100));
+    }
+
+    public int add(String spuId, String productName, String category, String color, String size, long priceCents) {
+        if (this.size == capacity) {
+            throw new IllegalStateException("SKU 存储已满：" + capacity);
+        }
+        int row = this.size;
+        int offset = row * 4;
+        spuIds.putInt(offset, dictionary.encode(spuId));
+        productNames.putInt(offset, dictionary.encode(productName));
+        categories.putInt(offset, dictionary.encode(category));
+        colors.putInt(offset, dictionary.encode(color));
+        sizes.putInt(offset, dictionary.encode(size));
+        prices.putLong(row * 8, priceCents);
+        this.size = row + 1;
+        return row;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long priceCents(int row) {
+        checkRow(row);
+        return prices.getLong(row * 8);
+    }
+
+    // 价格过滤：把命中的行号写入 out，返回命中数（out 写满即停止）
+    public int filterByPrice(long minCents, long maxCents, int[] out) {
+        int hits = 0;
+        for (int row = 0; row < size && hits < out.length; row++) {
+            long price = prices.getLong(row * 8);
+            if (price >= minCents && price <= maxCents) {
+                out[hits++] = row;
+            }
+        }
+        return hits;
+    }
+
+    public void forEachInPriceRange(long minCents, long maxCents, IntConsumer action) {
+        for (int row = 0; row < size; row++) {
+            long price = prices.getLong(row * 8);
+            if (price >= minCents && price <= maxCents) {
+                action.accept(row);
+            }
+        }
+    }
+
+    // 可复用的只读视图：调用方持有一个视图，用 moveTo 切换行，读取时不分配对象
+    public SkuView view(int row) {
+        return new SkuView().moveTo(row);
+    }
+
+    // 堆外内存占用（字节）
+    public long offHeapBytes() {
+        return (long) capacity * (5 * 4 + 8);
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("行号越界：" + row + "，当前行数：" + size);
+        }
+    }
+
+    private static ByteBuffer intColumn(int capacity) {
+        return ByteBuffer.allocateDirect(capacity * 4).order(ByteOrder.nativeOrder());
+    }
+
+    // SKU 只读视图：字段访问方式与 SkuPrototype 一致，clone() 物化成独立的 SkuPrototype
+    class SkuView implements Prototype {
+        private int row;
+
+        public SkuView moveTo(int row) {
+            checkRow(row);
+            this.row = row;
+            return this;
+        }
+
+        public String getSpuId() {
+            return dictionary.decode(spuIds.getInt(row * 4));
+        }
+
+        public String getProductName() {
+            return dictionary.decode(productNames.getInt(row * 4));
+        }
+
+        public String getCategory() {
+            return dictionary.decode(categories.getInt(row * 4));
+        }
+
+        public String getColor() {
+            return dictionary.decode(colors.getInt(row * 4));
+        }
+
+        public String getSize() {
+            return dictionary.decode(sizes.getInt(row * 4));
+        }
+
+        public double getPrice() {
+            return prices.getLong(row * 8) / 100.0;
+        }
+
+        @Override
+        public Prototype clone() {
+            SkuPrototype sku = new SkuPrototype(getSpuId(), getProductName(), getCategory());
+            sku.setDiffAttr(getColor(), getSize(), getPrice());
+            return sku;
+        }
+
+        @Override
+        public String toString() {
+            return clone().toString();
+        }
+    }
+
+    // 字典编码：字符串 ↔ 连续 int 编码，-1 表示 null
+    private static final class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int encode(String value) {
+            if (value == null) {
+                return -1;
+            }
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                codes.put(value, code);
+                values.add(value);
+            }
+            return code;
+        }
+
+        String decode(int code) {
+            return code < 0 ? null : values.get(code);
+        }
+    }
+}
+
+// 测试类：1000 万个 SKU，对比对象数组与列式存储的堆占用和价格过滤耗时
+class SkuColumnStoreTest {
+    private static final int SKUS = 10_000_000;
+    private static final String[] COLORS = {"红色", "蓝色", "黑色", "白色", "灰色", "绿色"};
+    private static final String[] SIZES = {"S", "M", "L", "XL", "XXL"};
+
+    public static void main(String[] args) {
+        long base = usedHeap();
+        SkuPrototypeRegistry registry = new SkuPrototypeRegistry();
+        SkuPrototype[] objects = new SkuPrototype[SKUS];
+        for (int i = 0; i < SKUS; i++) {
+            String spuId = "SPU" + i / 1000;
+            registry.register(spuId, "T恤", "服装");
+            objects[i] = registry.createSku(spuId, COLORS[i % COLORS.length], SIZES[i % SIZES.length], 50 + i % 200);
+        }
+        long objectHeap = usedHeap() - base;
+        long start = System.nanoTime();
+        int objectHits = 0;
+        for (SkuPrototype sku : objects) {
+            if (sku.getPrice() >= 99 && sku.getPrice() <= 120) {
+                objectHits++;
+            }
+        }
+        long objectScanNanos = System.nanoTime() - start;
+        System.out.printf("对象数组：堆占用 %,d MB，价格过滤 %.1f ms，命中 %,d%n",
+                objectHeap >> 20, objectScanNanos / 1e6, objectHits);
+        objects = null;
+        registry = null;
+
+        base = usedHeap();
+        SkuColumnStore store = new SkuColumnStore(SKUS);
+        for (int i = 0; i < SKUS; i++) {
+            store.add("SPU" + i / 1000, "T恤", "服装", COLORS[i % COLORS.length], SIZES[i % SIZES.length], (50 + i % 200) * 100L);
+        }
+        long columnHeap = usedHeap() - base;
+        int[] hits = new int[SKUS];
+        start = System.nanoTime();
+        int columnHits = store.filterByPrice(9_900, 12_000, hits);
+        long columnScanNanos = System.nanoTime() - start;
+        System.out.printf("列式存储：堆占用 %,d MB（堆外 %,d MB），价格过滤 %.1f ms，命中 %,d%n",
+                columnHeap >> 20, store.offHeapBytes() >> 20, columnScanNanos / 1e6, columnHits);
+        System.out.println("第一条命中：" + store.view(hits[0]));
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
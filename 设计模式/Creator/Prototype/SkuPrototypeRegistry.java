@@ -0,0 +1,131 @@
+package Creator.Prototype;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SKU 原型注册表（按 spuId 缓存原型）
+ *
+ * 目录导入时同一个 SPU 会派生出成千上万个 SKU：
+ * 1. 每个 SPU 只保留一个原型，SPU 通用属性（spuId / 商品名 / 类目）规范化后由所有 SKU 共享引用；
+ * 2. 颜色、尺码只有有限的取值，用享元字典去重，每个 SKU 只持有字典里的那一份字符串；
+ * 3. 可选对象池模式：用完的 SKU 归还后被回收复用，批量导入时几乎不再分配新对象。
+ */
+class SkuPrototypeRegistry {
+    private final ConcurrentHashMap<String, SkuPrototype> prototypes = new ConcurrentHashMap<>();
+    // 享元字典：SPU 通用属性、颜色、尺码共用一个规范化字符串表
+    private final ConcurrentHashMap<String, String> dictionary = new ConcurrentHashMap<>();
+    // 对象池（可选）：null 表示不启用
+    private final ConcurrentLinkedQueue<SkuPrototype> pool;
+    private final int maxPooled;
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    public SkuPrototypeRegistry() {
+        this(0);
+    }
+
+    // maxPooled > 0 时启用对象池，最多缓存 maxPooled 个回收的 SKU
+    public SkuPrototypeRegistry(int maxPooled) {
+        this.maxPooled = maxPooled;
+        this.pool = maxPooled > 0 ? new ConcurrentLinkedQueue<>() : null;
+    }
+
+    // 注册 SPU 原型，重复注册返回已有原型
+    public SkuPrototype register(String spuId, String productName, String category) {
+        return prototypes.computeIfAbsent(canonical(spuId),
+                id -> new SkuPrototype(id, canonical(productName), canonical(category)));
+    }
+
+    // 派生 SKU：优先从对象池取，否则克隆原型
+    public SkuPrototype createSku(String spuId, String color, String size, double price) {
+        SkuPrototype prototype = prototypes.get(spuId);
+        if (prototype == null) {
+            throw new IllegalArgumentException("未注册的 SPU：" + spuId);
+        }
+        SkuPrototype sku = pool == null ? null : pool.poll();
+        if (sku != null) {
+            pooled.decrementAndGet();
+            sku.resetFrom(prototype);
+        } else {
+            sku = (SkuPrototype) prototype.clone();
+        }
+        sku.setDiffAttr(canonical(color), canonical(size), price);
+        return sku;
+    }
+
+    // 归还 SKU 到对象池；池满或未启用对象池时直接丢弃，交给 GC
+    public void release(SkuPrototype sku) {
+        if (pool != null && pooled.incrementAndGet() <= maxPooled) {
+            pool.offer(sku);
+        } else if (pool != null) {
+            pooled.decrementAndGet();
+        }
+    }
+
+    public int dictionarySize() {
+        return dictionary.size();
+    }
+
+    public int pooledCount() {
+        return pooled.get();
+    }
+
+    private String canonical(String value) {
+        if (value == null) {
+            return null;
+        }
+        String existing = dictionary.putIfAbsent(value, value);
+        return existing == null ? value : existing;
+    }
+}
+
+// 内存对比：100 万个 SKU，直接 new（每个 SKU 各自持有解析出来的字符串） vs 注册表派生
+class SkuMemoryTest {
+    private static final int SKUS = 1_000_000;
+    private static final String[] COLORS = {"红色", "蓝色", "黑色", "白色", "灰色", "绿色"};
+    private static final String[] SIZES = {"S", "M", "L", "XL", "XXL"};
+
+    public static void main(String[] args) {
+        long base = usedMemory();
+        SkuPrototype[] naive = new SkuPrototype[SKUS];
+        for (int i = 0; i < SKUS; i++) {
+            // 模拟导入时逐行解析：每个字段都是一个新字符串
+            naive[i] = new SkuPrototype(new String("SPU" + i / 1000), new String("T恤"), new String("服装"));
+            naive[i].setDiffAttr(new String(COLORS[i % COLORS.length]), new String(SIZES[i % SIZES.length]), 99.9);
+        }
+        long naiveBytes = usedMemory() - base;
+        System.out.printf("直接创建：%,d 个 SKU，约 %d 字节/个%n", SKUS, naiveBytes / SKUS);
+        naive = null;
+
+        base = usedMemory();
+        SkuPrototypeRegistry registry = new SkuPrototypeRegistry();
+        SkuPrototype[] derived = new SkuPrototype[SKUS];
+        for (int i = 0; i < SKUS; i++) {
+            String spuId = new String("SPU" + i / 1000);
+            registry.register(spuId, new String("T恤"), new String("服装"));
+            derived[i] = registry.createSku(spuId, new String(COLORS[i % COLORS.length]), new String(SIZES[i % SIZES.length]), 99.9);
+        }
+        long registryBytes = usedMemory() - base;
+        System.out.printf("注册表派生：%,d 个 SKU，约 %d 字节/个，字典条目 %d%n",
+                SKUS, registryBytes / SKUS, registry.dictionarySize());
+
+        // 对象池模式：整批归还后再派生一批，第二批全部复用旧对象
+        SkuPrototypeRegistry pooledRegistry = new SkuPrototypeRegistry(SKUS);
+        pooledRegistry.register("SPU0", "T恤", "服装");
+        for (int i = 0; i < SKUS; i++) {
+            pooledRegistry.release(derived[i]);
+        }
+        derived = null;
+        SkuPrototype reused = pooledRegistry.createSku("SPU0", "红色", "M", 99.9);
+        System.out.println("对象池复用：" + reused + "，池中剩余 " + pooledRegistry.pooledCount());
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,32 @@
+package Creator.Singleton;
+
+/**
+ * 订单号发号入口（静态内部类单例）
+ *
+ * 默认用雪花算法：ID 由时间戳 + 机器 ID + 序列号组成，进程重启后不会与之前发出的订单号重复；
+ * 订单号格式为 "ORD" + 十进制 ID。多实例部署时用 -Dorder.workerId=0~31 给每个实例分配不同的机器 ID。
+ * 号段模式（SegmentIdGenerator）需要搭配持久化的号段分配器（数据库 / Redis），进程内存分配器每次启动都从 1 开始，不适合做默认。
+ */
+public final class OrderIds {
+    private static final int ORDER_BIZ_ID = 1;
+
+    private OrderIds() {
+    }
+
+    private static class Holder {
+        private static final SnowflakeIdGenerator SNOWFLAKE =
+                new SnowflakeIdGenerator(ORDER_BIZ_ID, Integer.getInteger("order.workerId", 0));
+    }
+
+    public static long nextId() {
+        return Holder.SNOWFLAKE.nextId();
+    }
+
+    public static String next() {
+        return "ORD" + nextId();
+    }
+
+    public static SnowflakeIdGenerator snowflake() {
+        return Holder.SNOWFLAKE;
+    }
+}
@@ -0,0 +1,138 @@
+package Creator.Singleton;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 号段模式发号器（双 buffer，见 场景/设计一个发号机.md 方案 1）
+ *
+ * - 从号段分配器（生产上是号段表 + 乐观锁）一次申请 step 个 ID 作为当前号段；
+ * - 当前号段剩余不足 preloadRatio 时，后台线程预先申请下一个号段，用完直接切换，发号不等数据库；
+ * - 每个线程再从号段里一次领一小块（chunk 个）放到 ThreadLocal，热路径只是一次本地自增，
+ *   共享的 AtomicLong 每 chunk 个 ID 才碰一次。
+ * 代价：ID 全局唯一、单线程内递增，但不同线程之间不保证按时间顺序。
+ */
+public class SegmentIdGenerator {
+    // 号段分配器：返回 [start, start + step) 这段 ID 的起点
+    public interface Allocator {
+        long allocate(String bizTag, int step);
+    }
+
+    private final Allocator allocator;
+    private final String bizTag;
+    private final int step;
+    private final int chunk;
+    private final long preloadThreshold;
+    private final AtomicBoolean loading = new AtomicBoolean();
+    private final ExecutorService loader;
+    private volatile Segment current;
+    private volatile Segment next;
+    private final ThreadLocal<long[]> local = ThreadLocal.withInitial(() -> new long[2]);
+
+    public SegmentIdGenerator(Allocator allocator, String bizTag, int step, int chunk, double preloadRatio) {
+        if (chunk <= 0 || chunk > step) {
+            throw new IllegalArgumentException("chunk 必须在 1 ~ step 之间");
+        }
+        this.allocator = allocator;
+        this.bizTag = bizTag;
+        this.step = step;
+        this.chunk = chunk;
+        this.preloadThreshold = (long) (step * preloadRatio);
+        this.loader = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "segment-loader-" + bizTag);
+            t.setDaemon(true);
+            return t;
+        });
+        this.current = load();
+    }
+
+    public long nextId() {
+        long[] range = local.get();
+        if (range[0] == range[1]) {
+            refill(range);
+        }
+        return range[0]++;
+    }
+
+    // 从当前号段领一块到线程本地；号段用完时切到预加载好的下一个号段
+    private void refill(long[] range) {
+        while (true) {
+            Segment segment = current;
+            long start = segment.cursor.getAndAdd(chunk);
+            if (start < segment.end) {
+                range[0] = start;
+                range[1] = Math.min(start + chunk, segment.end);
+                if (segment.end - range[1] <= preloadThreshold) {
+                    preloadNext();
+                }
+                return;
+            }
+            switchSegment(segment);
+        }
+    }
+
+    private void preloadNext() {
+        if (next == null && loading.compareAndSet(false, true)) {
+            loader.execute(() -> {
+                try {
+                    if (next == null) {
+                        next = load();
+                    }
+                } finally {
+                    loading.set(false);
+                }
+            });
+        }
+    }
+
+    private synchronized void switchSegment(Segment exhausted) {
+        if (current != exhausted) {
+            return;
+        }
+        Segment ready = next;
+        if (ready != null) {
+            next = null;
+            current = ready;
+        } else {
+            // 预加载没赶上（或分配器故障后恢复）：同步申请
+            current = load();
+        }
+    }
+
+    private Segment load() {
+        long start = allocator.allocate(bizTag, step);
+        return new Segment(start, start + step);
+    }
+
+    private static final class Segment {
+        final AtomicLong cursor;
+        final long end;
+
+        Segment(long start, long end) {
+            this.cursor = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+}
+
+/**
+ * 内存版号段分配器：模拟号段表
+ * UPDATE id_segment SET max_id = max_id + step WHERE biz_tag = ? AND max_id = ?（乐观锁）
+ */
+class InMemorySegmentAllocator implements SegmentIdGenerator.Allocator {
+    private final ConcurrentHashMap<String, AtomicLong> maxIds = new ConcurrentHashMap<>();
+    private final AtomicLong allocations = new AtomicLong();
+
+    @Override
+    public long allocate(String bizTag, int step) {
+        allocations.incrementAndGet();
+        return maxIds.computeIfAbsent(bizTag, k -> new AtomicLong(1)).getAndAdd(step);
+    }
+
+    public long allocations() {
+        return allocations.get();
+    }
+}
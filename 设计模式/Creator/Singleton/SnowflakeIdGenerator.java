@@ -0,0 +1,88 @@
+package Creator.Singleton;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 雪花算法发号器（布局见 场景/设计一个发号机.md 方案 2）
+ *
+ * 64 位：1 位符号 | 41 位毫秒时间戳（相对 2025-01-01）| 5 位业务 ID | 5 位机器 ID | 12 位序列号
+ *
+ * 与笔记里 synchronized 的版本不同，“上次时间戳 + 序列号”合并成一个 long，用一次 CAS 推进：
+ * - 同一毫秒内序列号用完时直接借用下一毫秒（逻辑时间跑到物理时间前面），
+ *   领先超过 maxAheadMillis 才自旋等物理时钟追上，高并发下不会每 4096 个 ID 就停一次；
+ * - 时钟回拨不超过 maxBackwardMillis 时继续沿用上次的逻辑时间发号，ID 依旧单调递增；
+ *   回拨超过容忍范围直接抛异常，由调用方告警 / 降级到号段模式。
+ */
+public class SnowflakeIdGenerator {
+    public static final long EPOCH = 1735689600000L;
+
+    private static final int SEQUENCE_BITS = 12;
+    private static final int WORKER_BITS = 5;
+    private static final int BIZ_BITS = 5;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final int WORKER_SHIFT = SEQUENCE_BITS;
+    private static final int BIZ_SHIFT = SEQUENCE_BITS + WORKER_BITS;
+    private static final int TIMESTAMP_SHIFT = SEQUENCE_BITS + WORKER_BITS + BIZ_BITS;
+
+    private final long node;
+    private final long maxBackwardMillis;
+    private final long maxAheadMillis;
+    // 高位：上次使用的逻辑时间戳（相对 EPOCH），低 12 位：该毫秒内已发出的序列号
+    private final AtomicLong state = new AtomicLong();
+
+    public SnowflakeIdGenerator(int bizId, int workerId) {
+        this(bizId, workerId, 5, 10);
+    }
+
+    public SnowflakeIdGenerator(int bizId, int workerId, long maxBackwardMillis, long maxAheadMillis) {
+        if (bizId < 0 || bizId >= 1 << BIZ_BITS || workerId < 0 || workerId >= 1 << WORKER_BITS) {
+            throw new IllegalArgumentException("bizId / workerId 超出范围（0-31）");
+        }
+        this.node = ((long) bizId << BIZ_SHIFT) | ((long) workerId << WORKER_SHIFT);
+        this.maxBackwardMillis = maxBackwardMillis;
+        this.maxAheadMillis = maxAheadMillis;
+    }
+
+    public long nextId() {
+        while (true) {
+            // 先读状态再读时钟：now 一定不早于写入该状态时的物理时间，避免线程被挂起后把旧的 now 误判为回拨
+            long current = state.get();
+            long now = currentMillis() - EPOCH;
+            long last = current >>> SEQUENCE_BITS;
+            long sequence = current & SEQUENCE_MASK;
+            long timestamp;
+            if (now > last) {
+                timestamp = now;
+                sequence = 0;
+            } else {
+                if (last - now > maxBackwardMillis + maxAheadMillis) {
+                    // 正常情况下逻辑时间最多领先 maxAheadMillis，再多出来的部分只能是物理时钟回拨
+                    throw new IllegalStateException("时钟回拨超出容忍范围：" + (last - now - maxAheadMillis) + "ms");
+                }
+                timestamp = last;
+                if (++sequence > SEQUENCE_MASK) {
+                    if (last - now >= maxAheadMillis) {
+                        // 借得太多，等物理时钟追上来
+                        Thread.onSpinWait();
+                        continue;
+                    }
+                    timestamp = last + 1;
+                    sequence = 0;
+                }
+            }
+            if (state.compareAndSet(current, (timestamp << SEQUENCE_BITS) | sequence)) {
+                return (timestamp << TIMESTAMP_SHIFT) | node | sequence;
+            }
+        }
+    }
+
+    // 从 ID 中解析出生成时间（毫秒时间戳）
+    public static long timestampOf(long id) {
+        return (id >>> TIMESTAMP_SHIFT) + EPOCH;
+    }
+
+    // 留给测试覆盖，用来模拟时钟回拨
+    protected long currentMillis() {
+        return System.currentTimeMillis();
+    }
+}